@@ -0,0 +1,46 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import unsw.response.ResponseAdapters;
+
+/**
+ * Getting one entity's info and writing it as JSON, the way the entity info route does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InfoBenchmark {
+    private final Gson gson = ResponseAdapters.register(new GsonBuilder(), ResponseAdapters.FULL_PRECISION).create();
+    private int next;
+
+    @Benchmark
+    public String satelliteInfo(World.Large world) {
+        List<String> ids = world.getSatelliteIds();
+        if (ids.isEmpty()) return "";
+        return gson.toJson(world.getController().getInfo(ids.get(next++ % ids.size())));
+    }
+
+    @Benchmark
+    public String deviceInfo(World.Large world) {
+        List<String> ids = world.getDeviceIds();
+        return gson.toJson(world.getController().getInfo(ids.get(next++ % ids.size())));
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import unsw.utils.Angle;
+import unsw.utils.MathsHelper;
+
+/**
+ * The geometry every range check comes down to, over a fixed table of random pairs so the
+ * branches inside isVisible are not always taken the same way. Independent of world size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MathsBenchmark {
+    private static final int PAIRS = 1024;
+
+    private final double[] heights = new double[PAIRS];
+    private final double[] otherHeights = new double[PAIRS];
+    private final Angle[] angles = new Angle[PAIRS];
+    private final Angle[] otherAngles = new Angle[PAIRS];
+    private int next;
+
+    @Setup
+    public void build() {
+        Random random = new Random(2511);
+        for (int i = 0; i < PAIRS; i++) {
+            heights[i] = RADIUS_OF_JUPITER + 1000 + random.nextInt(80000);
+            otherHeights[i] = RADIUS_OF_JUPITER + 1000 + random.nextInt(80000);
+            angles[i] = Angle.fromDegrees(random.nextDouble() * 360);
+            otherAngles[i] = Angle.fromDegrees(random.nextDouble() * 360);
+        }
+    }
+
+    @Benchmark
+    public boolean isVisibleToSatellite() {
+        int i = next++ & (PAIRS - 1);
+        return MathsHelper.isVisible(heights[i], angles[i], otherHeights[i], otherAngles[i]);
+    }
+
+    @Benchmark
+    public boolean isVisibleToDevice() {
+        int i = next++ & (PAIRS - 1);
+        return MathsHelper.isVisible(heights[i], angles[i], otherAngles[i]);
+    }
+
+    @Benchmark
+    public double getDistanceToSatellite() {
+        int i = next++ & (PAIRS - 1);
+        return MathsHelper.getDistance(heights[i], angles[i], otherHeights[i], otherAngles[i]);
+    }
+
+    @Benchmark
+    public double getDistanceToDevice() {
+        int i = next++ & (PAIRS - 1);
+        return MathsHelper.getDistance(heights[i], angles[i], otherAngles[i]);
+    }
+}
@@ -0,0 +1,41 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Range queries between ticks, taking each satellite and device in turn so no one entity's
+ * neighbourhood decides the result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RangeBenchmark {
+    private int next;
+
+    @Benchmark
+    public List<String> satelliteInRange(World.Connected world) {
+        List<String> ids = world.getSatelliteIds();
+        if (ids.isEmpty()) return ids;
+        return world.getController().communicableEntitiesInRange(ids.get(next++ % ids.size()));
+    }
+
+    @Benchmark
+    public List<String> deviceInRange(World.Connected world) {
+        List<String> ids = world.getDeviceIds();
+        return world.getController().communicableEntitiesInRange(ids.get(next++ % ids.size()));
+    }
+}
@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import unsw.blackout.BlackoutController;
+import unsw.blackout.FileTransferException;
+import unsw.response.models.EntityInfoResponse;
+import unsw.response.models.FileInfoResponse;
+
+/**
+ * Admitting a file transfer from a device to a satellite in range: every check sendFile makes,
+ * then starting the transfer.
+ *
+ * Each call is undone afterwards by putting fresh copies of the device and satellite in place,
+ * which is not timed. Undone transfers leave stale completion events behind, so the world is built
+ * again for every iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SendFileBenchmark {
+    private static final int MAX_PAIRS = 256;
+
+    // Each device paired with a satellite in its range, both as they were before any transfer
+    private final List<EntityInfoResponse> devices = new ArrayList<>();
+    private final List<EntityInfoResponse> satellites = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void build(World.Connected world) {
+        world.build();
+        devices.clear();
+        satellites.clear();
+        BlackoutController controller = world.getController();
+        for (String deviceId : world.getDeviceIds()) {
+            for (String id : controller.communicableEntitiesInRange(deviceId)) {
+                EntityInfoResponse info = controller.getInfo(id);
+                if (!info.getType().endsWith("Satellite")) continue;
+                devices.add(controller.getInfo(deviceId));
+                satellites.add(info);
+                break;
+            }
+            if (devices.size() == MAX_PAIRS) break;
+        }
+        // sendFile does not check range itself, so a world with nothing in range still has a pair
+        if (devices.isEmpty()) {
+            devices.add(controller.getInfo(world.getDeviceIds().get(0)));
+            satellites.add(controller.getInfo(world.getSatelliteIds().get(0)));
+        }
+    }
+
+    @Benchmark
+    public String sendFile(World.Connected world) {
+        int pair = next % devices.size();
+        String deviceId = devices.get(pair).getDeviceId();
+        try {
+            world.getController().sendFile("File" + deviceId, deviceId, satellites.get(pair).getDeviceId());
+            return "";
+        } catch (FileTransferException e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void undo(World.Connected world) {
+        BlackoutController controller = world.getController();
+        int pair = next++ % devices.size();
+        EntityInfoResponse device = devices.get(pair);
+        controller.removeDevice(device.getDeviceId());
+        controller.createDevice(device.getDeviceId(), device.getType(), device.getPosition());
+        for (FileInfoResponse file : device.getFiles().values()) {
+            controller.addFileToDevice(device.getDeviceId(), file.getFilename(), file.getData());
+        }
+        EntityInfoResponse satellite = satellites.get(pair);
+        controller.removeSatellite(satellite.getDeviceId());
+        controller.createSatellite(satellite.getDeviceId(), satellite.getType(), satellite.getHeight(),
+                                   satellite.getPosition());
+    }
+}
@@ -0,0 +1,38 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One minute of simulation, which moves every entity, advances transfers and rebuilds connectivity
+ * the next time it is asked for. The world keeps running from one call to the next.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulateBenchmark {
+    @Benchmark
+    public long simulate(World.Large world) {
+        world.getController().simulate();
+        return world.getController().getCurrentTick();
+    }
+
+    /*
+     * A tick followed by the range query a client polling after every tick would make, so the
+     * connectivity rebuild the tick left behind is paid for as well.
+     */
+    @Benchmark
+    public int simulateThenQuery(World.Connected world) {
+        world.getController().simulate();
+        return world.getController().communicableEntitiesInRange(world.getDeviceIds().get(0)).size();
+    }
+}
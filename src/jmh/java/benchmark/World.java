@@ -0,0 +1,114 @@
+package benchmark;
+
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import unsw.blackout.BlackoutController;
+import unsw.utils.Angle;
+
+/**
+ * A world shared by a benchmark's threads, built once per trial from a fixed seed so every run
+ * measures the same world.
+ *
+ * Four in every five entities are satellites, either all of one type or an even mix of all three,
+ * and every device holds one small file. Satellites are spread so thickly that nearly every pair
+ * can see each other, so what is in range of what grows with the square of the world's size;
+ * benchmarks that need it use a {@link Connected} world, which stops short of running out of memory.
+ */
+public abstract class World {
+    static final String MIXED = "mixed";
+    private static final String[] SATELLITE_TYPES = {"StandardSatellite", "TeleportingSatellite", "RelaySatellite"};
+    private static final String[] DEVICE_TYPES = {"HandheldDevice", "LaptopDevice", "DesktopDevice"};
+    private static final long SEED = 1531;
+
+    private BlackoutController controller;
+    private final List<String> satelliteIds = new ArrayList<>();
+    private final List<String> deviceIds = new ArrayList<>();
+
+    /**
+     * Builds the world again from scratch.
+     */
+    public abstract void build();
+
+    void build(int entities, String satellites) {
+        controller = new BlackoutController();
+        satelliteIds.clear();
+        deviceIds.clear();
+        Random random = new Random(SEED);
+        int numberOfDevices = Math.max(1, entities / 5);
+        for (int i = 0; i < entities - numberOfDevices; i++) {
+            String id = "Satellite" + i;
+            String type = MIXED.equals(satellites) ? SATELLITE_TYPES[i % SATELLITE_TYPES.length] : satellites;
+            // Anywhere from 1000km to 81000km above the surface
+            controller.createSatellite(id, type, RADIUS_OF_JUPITER + 1000 + random.nextInt(80000),
+                                       Angle.fromDegrees(random.nextDouble() * 360));
+            satelliteIds.add(id);
+        }
+        for (int i = 0; i < numberOfDevices; i++) {
+            String id = "Device" + i;
+            controller.createDevice(id, DEVICE_TYPES[i % DEVICE_TYPES.length],
+                                    Angle.fromDegrees(random.nextDouble() * 360));
+            controller.addFileToDevice(id, "File" + id, "Contents of file " + i);
+            deviceIds.add(id);
+        }
+        // Settles positions, as a world that has been running would have
+        controller.simulate();
+    }
+
+    BlackoutController getController() {
+        return controller;
+    }
+
+    List<String> getSatelliteIds() {
+        return satelliteIds;
+    }
+
+    List<String> getDeviceIds() {
+        return deviceIds;
+    }
+
+    /**
+     * Up to 50,000 entities, for benchmarks that never ask what is in range.
+     */
+    @State(Scope.Benchmark)
+    public static class Large extends World {
+        @Param({"10", "100", "1000", "10000", "50000"})
+        private int entities;
+
+        @Param({MIXED, "StandardSatellite", "TeleportingSatellite", "RelaySatellite"})
+        private String satellites;
+
+        @Override
+        @Setup(Level.Trial)
+        public void build() {
+            this.build(entities, satellites);
+        }
+    }
+
+    /**
+     * Up to 5,000 entities, for benchmarks that ask what is in range.
+     */
+    @State(Scope.Benchmark)
+    public static class Connected extends World {
+        @Param({"10", "100", "1000", "5000"})
+        private int entities;
+
+        @Param({MIXED, "StandardSatellite", "TeleportingSatellite", "RelaySatellite"})
+        private String satellites;
+
+        @Override
+        @Setup(Level.Trial)
+        public void build() {
+            this.build(entities, satellites);
+        }
+    }
+}
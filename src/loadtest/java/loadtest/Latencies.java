@@ -0,0 +1,63 @@
+package loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Every latency recorded for one route, kept in full so percentiles are exact.
+ */
+public class Latencies {
+    private long[] nanos = new long[1024];
+    private int count = 0;
+    private int errors = 0;
+    private int rejected = 0;
+
+    public synchronized void record(long elapsedNanos) {
+        if (count == nanos.length) nanos = Arrays.copyOf(nanos, count * 2);
+        nanos[count++] = elapsedNanos;
+    }
+
+    /**
+     * A request the server failed, or that never got an answer.
+     */
+    public synchronized void error() {
+        errors++;
+    }
+
+    /**
+     * A request the server answered but turned down, such as a transfer with no bandwidth left.
+     */
+    public synchronized void rejected() {
+        rejected++;
+    }
+
+    public synchronized void addAll(Latencies other) {
+        synchronized (other) {
+            for (int i = 0; i < other.count; i++) this.record(other.nanos[i]);
+            errors += other.errors;
+            rejected += other.rejected;
+        }
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+    public synchronized int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * The latency below which the given fraction of requests fell, in milliseconds.
+     */
+    public synchronized double percentileMillis(double fraction) {
+        if (count == 0) return Double.NaN;
+        long[] sorted = Arrays.copyOf(nanos, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(fraction * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, rank))] / 1e6;
+    }
+}
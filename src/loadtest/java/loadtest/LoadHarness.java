@@ -0,0 +1,215 @@
+package loadtest;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import unsw.scenario.ScenarioGenerator;
+import unsw.utils.Angle;
+
+/**
+ * Drives a locally running server from many sessions at once, then reports throughput and
+ * latency for each route.
+ *
+ * Every session is a client with its own cookies, so the server treats it as a separate user. It
+ * first creates a generated scenario one entity and file at a time, then until time is up it
+ * keeps starting a transfer, simulating a minute and asking what is in range of something.
+ * Creating is always recorded; of the rest, nothing is recorded until the warm up is over.
+ *
+ * Settings are name=value arguments: url (http://localhost:4567), sessions (16), seconds (30),
+ * warmup (5), seed (1), satellites and devices of each type (10 and 5) and files per device (2).
+ * The server has to be on this machine; any other host is refused.
+ */
+public final class LoadHarness {
+    private static final String CREATE = "create";
+    private static final String SEND_FILE = "sendFile";
+    private static final String SIMULATE = "simulate";
+    private static final String IN_RANGE = "entitiesInRange";
+
+    private final URI base;
+    private final int sessions;
+    private final long seconds;
+    private final long warmup;
+    private final long seed;
+    private final int satellitesPerType;
+    private final int devicesPerType;
+    private final int filesPerDevice;
+
+    private final Map<String, Latencies> routes = new TreeMap<>();
+    private long measureFrom;
+    private long measureUntil;
+
+    private LoadHarness(Map<String, String> settings) {
+        this.base = URI.create(settings.getOrDefault("url", "http://localhost:4567"));
+        this.sessions = Integer.parseInt(settings.getOrDefault("sessions", "16"));
+        this.seconds = Long.parseLong(settings.getOrDefault("seconds", "30"));
+        this.warmup = Long.parseLong(settings.getOrDefault("warmup", "5"));
+        this.seed = Long.parseLong(settings.getOrDefault("seed", "1"));
+        this.satellitesPerType = Integer.parseInt(settings.getOrDefault("satellites", "10"));
+        this.devicesPerType = Integer.parseInt(settings.getOrDefault("devices", "5"));
+        this.filesPerDevice = Integer.parseInt(settings.getOrDefault("files", "2"));
+        for (String route : new String[] {CREATE, SEND_FILE, SIMULATE, IN_RANGE}) routes.put(route, new Latencies());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) throw new IllegalArgumentException("Expected name=value, got " + arg);
+            settings.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        new LoadHarness(settings).run();
+    }
+
+    private void run() throws Exception {
+        if (!InetAddress.getByName(base.getHost()).isLoopbackAddress()) {
+            throw new IllegalArgumentException(base + " is not on this machine");
+        }
+        System.out.printf("%d sessions for %ds after %ds warm up against %s%n", sessions, seconds, warmup, base);
+
+        long start = System.nanoTime();
+        measureFrom = start + warmup * 1_000_000_000L;
+        measureUntil = measureFrom + seconds * 1_000_000_000L;
+        ExecutorService pool = Executors.newFixedThreadPool(sessions);
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            int session = i;
+            running.add(pool.submit(() -> {
+                this.runSession(session);
+                return null;
+            }));
+        }
+        for (Future<?> each : running) each.get();
+        pool.shutdown();
+        this.report();
+    }
+
+    private void runSession(int session) throws IOException {
+        HttpClient client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<String> satelliteIds = new ArrayList<>();
+        List<String> deviceIds = new ArrayList<>();
+        List<String> fileNames = new ArrayList<>();
+
+        new ScenarioGenerator(seed + session, satellitesPerType, devicesPerType, filesPerDevice)
+                .generate(new ScenarioGenerator.Sink<IOException>() {
+                    @Override
+                    public void satellite(String id, String type, double height, Angle position)
+                            throws IOException {
+                        satelliteIds.add(id);
+                        call(client, CREATE, "PUT", "/api/satellite/", null, "satelliteId", id, "type", type,
+                             "height", height, "position", position.toRadians());
+                    }
+
+                    @Override
+                    public void device(String id, String type, Angle position, boolean isMoving)
+                            throws IOException {
+                        deviceIds.add(id);
+                        call(client, CREATE, "PUT", "/api/device/", null, "deviceId", id, "type", type,
+                             "position", position.toRadians(), "isMoving", isMoving);
+                    }
+
+                    @Override
+                    public void file(String deviceId, String filename, String content) throws IOException {
+                        if (!fileNames.contains(filename)) fileNames.add(filename);
+                        call(client, CREATE, "POST", "/api/device/file/", content,
+                             "deviceId", deviceId, "fileName", filename);
+                    }
+                });
+
+        Random random = new Random(seed + session);
+        while (System.nanoTime() < measureUntil) {
+            if (!deviceIds.isEmpty() && !satelliteIds.isEmpty() && !fileNames.isEmpty()) {
+                call(client, SEND_FILE, "POST", "/api/sendFile/", null,
+                     "fileName", pick(fileNames, random), "fromId", pick(deviceIds, random),
+                     "toId", pick(satelliteIds, random));
+            }
+            call(client, SIMULATE, "POST", "/api/simulate/", null);
+            String id = random.nextBoolean() || deviceIds.isEmpty() ? pick(satelliteIds, random)
+                                                                     : pick(deviceIds, random);
+            if (id != null) call(client, IN_RANGE, "GET", "/api/entity/entitiesInRange/", null, "id", id);
+        }
+    }
+
+    private static String pick(List<String> ids, Random random) {
+        return ids.isEmpty() ? null : ids.get(random.nextInt(ids.size()));
+    }
+
+    /*
+     * Makes one request and records how it went. Being interrupted ends the session.
+     *
+     * @param query names and values, alternating
+     */
+    private void call(HttpClient client, String route, String method, String path, String body, Object... query)
+            throws IOException {
+        StringBuilder uri = new StringBuilder(path);
+        for (int i = 0; i < query.length; i += 2) {
+            uri.append(i == 0 ? '?' : '&').append(query[i]).append('=')
+               .append(URLEncoder.encode(String.valueOf(query[i + 1]), StandardCharsets.UTF_8));
+        }
+        HttpRequest request = HttpRequest.newBuilder(base.resolve(uri.toString()))
+                .timeout(Duration.ofSeconds(30))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                                             : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        long started = System.nanoTime();
+        boolean measured = route.equals(CREATE) || (started >= measureFrom && started < measureUntil);
+        Latencies latencies = routes.get(route);
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (!measured) return;
+            latencies.record(System.nanoTime() - started);
+            if (response.statusCode() >= 400) {
+                latencies.error();
+            } else if (response.body().startsWith("\"Virtual")) {
+                // sendFile turns a transfer down with the exception's name rather than a status
+                latencies.rejected();
+            }
+        } catch (IOException e) {
+            if (measured) latencies.error();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        }
+    }
+
+    private void report() {
+        System.out.printf("%-16s %9s %9s %7s %10s %9s %9s %9s%n",
+                          "route", "requests", "rejected", "errors", "per sec", "p50 ms", "p99 ms", "max ms");
+        Latencies steady = new Latencies();
+        for (Map.Entry<String, Latencies> route : routes.entrySet()) {
+            Latencies latencies = route.getValue();
+            // Creating happens up front rather than over the measured window, so it has no rate
+            boolean timed = !route.getKey().equals(CREATE);
+            if (timed) steady.addAll(latencies);
+            this.printRow(route.getKey(), latencies, timed);
+        }
+        this.printRow("all but create", steady, true);
+    }
+
+    private void printRow(String name, Latencies latencies, boolean timed) {
+        String rate = timed ? String.format("%.1f", latencies.getCount() / (double) seconds) : "-";
+        System.out.printf("%-16s %9d %9d %7d %10s %9.2f %9.2f %9.2f%n", name, latencies.getCount(),
+                          latencies.getRejected(), latencies.getErrors(), rate, latencies.percentileMillis(0.5),
+                          latencies.percentileMillis(0.99), latencies.percentileMillis(1));
+    }
+}
@@ -1,140 +1,412 @@
 package unsw;
 
 import spark.Request;
+import spark.Response;
 import spark.Spark;
 import unsw.blackout.BlackoutController;
+import unsw.blackout.EntityBatch;
 import unsw.blackout.FileTransferException;
+import unsw.blackout.WorldSnapshot;
+import unsw.feed.TickFeed;
+import unsw.feed.TickFeedSocket;
+import unsw.job.JobRunner;
+import unsw.job.SimulationJob;
+import unsw.metrics.RouteMetrics;
+import unsw.metrics.TickMetrics;
+import unsw.response.EntityProjection;
+import unsw.response.ResponseAdapters;
+import unsw.response.TickStreamWriter;
 import unsw.response.models.EntityInfoResponse;
+import unsw.scenario.ScenarioReader;
+import unsw.session.QuotaExceededException;
+import unsw.session.SessionClock;
+import unsw.session.SessionConfig;
+import unsw.session.SessionRegistry;
+import unsw.session.SessionState;
 import unsw.utils.Angle;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializer;
-import com.google.gson.JsonSerializationContext;
 
-import java.lang.reflect.Type;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 import scintilla.Scintilla;
 
 public class App {
-    private static volatile Map<String, BlackoutController> sessionStates = new HashMap<>();
+    private static final String STARTED = "blackout.started";
+    private static SessionRegistry sessionStates = new SessionRegistry(SessionConfig.fromEnvironment());
+    private static Map<String, TickFeed> sessionFeeds = new ConcurrentHashMap<>();
+    private static JobRunner jobs = JobRunner.fromEnvironment();
+    private static ScheduledExecutorService clockScheduler = SessionClock.newScheduler();
+    private static Map<String, SessionClock> sessionClocks = new ConcurrentHashMap<>();
+    // Both null unless blackout:METRICS is true
+    private static TickMetrics tickMetrics = TickMetrics.fromEnvironment();
+    private static RouteMetrics routeMetrics = (tickMetrics == null) ? null : new RouteMetrics();
 
-    private static synchronized BlackoutController getBlackoutController(Request request) {
+    static {
+        sessionStates.setTickMetrics(tickMetrics);
+        sessionStates.addEvictionListener(session -> {
+            TickFeed feed = sessionFeeds.remove(session);
+            if (feed != null) feed.close();
+            SessionClock clock = sessionClocks.remove(session);
+            if (clock != null) clock.stop();
+            jobs.cancelSession(session);
+        });
+    }
+
+    private static SessionState getSessionState(Request request) {
         String session = request.session().id();
         if (session == null) {
             throw new RuntimeException("No State found");
         }
+        return sessionStates.get(session);
+    }
+
+    private static TickFeed getTickFeed(String session) {
+        SessionState state = sessionStates.find(session);
+        if (state == null) return null;
+        return sessionFeeds.computeIfAbsent(session, id -> new TickFeed(state.getController()));
+    }
+
+    /*
+     * Simulates n ticks, writing each one to the client as soon as it is done rather than
+     * building every tick up in memory first. Only what changed since the previous tick is sent,
+     * and only the fields the projection asks for.
+     * The simulate route has no response transformer for this reason, so nothing is appended after,
+     * and the headers the after filter would add are set here, before the first write commits them.
+     */
+    private static void streamSimulation(BlackoutController bc, int n, Response response, Gson gson,
+                                         EntityProjection projection) throws IOException {
+        response.type("application/json");
+        allowCrossOrigin(response);
+        Writer out = new BufferedWriter(
+                new OutputStreamWriter(response.raw().getOutputStream(), StandardCharsets.UTF_8));
+        TickStreamWriter ticks = new TickStreamWriter(out, gson, projection);
+        for (int i = 0; i < n; i++) {
+            bc.simulate();
+            ticks.writeTick(allEntities(bc, projection));
+        }
+        ticks.finish();
+    }
+
+    private static void allowCrossOrigin(Response response) {
+        response.header("Access-Control-Allow-Origin", "*");
+        response.header("Access-Control-Allow-Methods", "*");
+        response.header("Access-Control-Allow-Headers", "*");
+    }
+
+    private static List<EntityInfoResponse> allEntities(BlackoutController bc, EntityProjection projection) {
+        List<EntityInfoResponse> result = new ArrayList<>();
+        bc.listSatelliteIds().forEach(id -> result.add(bc.getInfo(id, projection)));
+        bc.listDeviceIds().forEach(id -> result.add(bc.getInfo(id, projection)));
+        return result;
+    }
+
+    /*
+     * Changes that would take a session over its quota are refused with 413 and the reason,
+     * and a session can ask how much it is holding.
+     */
+    private static void registerSessionRoutes(Gson gson) {
+        Spark.exception(QuotaExceededException.class, (e, request, response) -> {
+            response.status(413);
+            response.type("application/json");
+            response.body(gson.toJson(e.getMessage()));
+        });
+
+        Spark.get("/api/session/usage/", "application/json", (request, response) -> {
+            SessionState state = getSessionState(request);
+            Map<String, Long> usage = new HashMap<>();
+            usage.put("entities", (long) state.getNumberOfEntities());
+            usage.put("fileBytes", state.getStoredFileBytes());
+            return usage;
+        }, gson::toJson);
+    }
+
+    /*
+     * Long simulations can be run as jobs instead, which return straight away and carry on in the
+     * background. Their results are read through the usual routes or the tick feed as they go.
+     */
+    private static void registerJobRoutes(Gson gson) {
+        Spark.post("/api/simulate/job/", "application/json", (request, response) -> {
+            SessionState state = getSessionState(request);
+            try {
+                return jobs.submit(request.session().id(), state, parseTicks(request)).getInfo();
+            } catch (RejectedExecutionException e) {
+                throw Spark.halt(503, gson.toJson("Too many simulation jobs are queued, try again later"));
+            }
+        }, gson::toJson);
+
+        Spark.get("/api/simulate/job/", "application/json", (request, response) -> {
+            // Asking after a job counts as using its session
+            getSessionState(request);
+            SimulationJob job = jobs.find(request.session().id(), request.queryParams("id"));
+            if (job == null) throw Spark.halt(404, gson.toJson("No such job"));
+            return job.getInfo();
+        }, gson::toJson);
+
+        Spark.delete("/api/simulate/job/", "application/json", (request, response) -> {
+            getSessionState(request);
+            SimulationJob job = jobs.find(request.session().id(), request.queryParams("id"));
+            if (job == null) throw Spark.halt(404, gson.toJson("No such job"));
+            job.cancel();
+            return job.getInfo();
+        }, gson::toJson);
+    }
+
+    /*
+     * A session's world can also advance on its own in real time: PUT starts its clock or changes
+     * the rate, given as the milliseconds between ticks or 0 for as fast as possible.
+     */
+    private static void registerClockRoutes(Gson gson) {
+        Spark.put("/api/clock/", "application/json", (request, response) -> {
+            SessionClock clock = getSessionClock(request);
+            try {
+                clock.start(Long.parseLong(request.queryParamOrDefault("period", "100")));
+            } catch (NumberFormatException e) {
+                throw Spark.halt(400, gson.toJson("The period must be a whole number of milliseconds"));
+            }
+            return clockInfo(clock);
+        }, gson::toJson);
+
+        Spark.delete("/api/clock/", "application/json", (request, response) -> {
+            SessionClock clock = getSessionClock(request);
+            clock.stop();
+            return clockInfo(clock);
+        }, gson::toJson);
+
+        Spark.get("/api/clock/", "application/json", (request, response) -> {
+            return clockInfo(getSessionClock(request));
+        }, gson::toJson);
+    }
 
-        if (sessionStates.containsKey(session)) {
-            return sessionStates.get(session);
-        } else {
-            BlackoutController bc = new BlackoutController();
-            sessionStates.put(session, bc);
-            return bc;
+    /*
+     * With metrics on, every request is timed from the first filter to the last, and
+     * /api/metrics/ reports where ticks and requests spend their time across every session.
+     */
+    private static void registerMetricsRoutes(Gson gson) {
+        if (tickMetrics != null) {
+            Spark.before((request, response) -> request.attribute(STARTED, System.nanoTime()));
+            Spark.afterAfter((request, response) -> {
+                Long started = request.attribute(STARTED);
+                if (started != null) {
+                    routeMetrics.record(request.requestMethod(), request.pathInfo(), System.nanoTime() - started);
+                }
+            });
+        }
+
+        Spark.get("/api/metrics/", "application/json", (request, response) -> {
+            Map<String, Object> metrics = new LinkedHashMap<>();
+            metrics.put("enabled", tickMetrics != null);
+            metrics.put("sessions", sessionStates.getNumberOfSessions());
+            if (tickMetrics != null) {
+                metrics.putAll(tickMetrics.summarise());
+                metrics.put("routes", routeMetrics.summarise());
+            }
+            return metrics;
+        }, gson::toJson);
+    }
+
+    private static SessionClock getSessionClock(Request request) {
+        SessionState state = getSessionState(request);
+        return sessionClocks.computeIfAbsent(request.session().id(), id -> new SessionClock(clockScheduler, state));
+    }
+
+    private static Map<String, Object> clockInfo(SessionClock clock) {
+        Map<String, Object> info = new HashMap<>();
+        info.put("running", clock.isRunning());
+        info.put("periodMillis", clock.getPeriodMillis());
+        info.put("droppedTicks", clock.getDroppedTicks());
+        return info;
+    }
+
+    /*
+     * A whole scenario can be loaded in one request. It is read straight off the request body
+     * before the session is locked, and then added all at once or not at all.
+     */
+    private static void registerScenarioRoutes(Gson gson) {
+        Spark.put("/api/scenario/", "application/json", (request, response) -> {
+            SessionState state = getSessionState(request);
+            try (Reader in = new BufferedReader(
+                    new InputStreamReader(request.raw().getInputStream(), StandardCharsets.UTF_8))) {
+                EntityBatch batch = ScenarioReader.read(in);
+                return state.write(bc -> {
+                    state.checkCanLoad(batch);
+                    bc.load(batch);
+                    Map<String, Integer> loaded = new HashMap<>();
+                    loaded.put("satellites", batch.getNumberOfSatellites());
+                    loaded.put("devices", batch.getNumberOfDevices());
+                    loaded.put("files", batch.getNumberOfFiles());
+                    return loaded;
+                });
+            } catch (IllegalArgumentException e) {
+                throw Spark.halt(400, gson.toJson(e.getMessage()));
+            }
+        }, gson::toJson);
+    }
+
+    /*
+     * Reads are served from the last published snapshot and never wait for a writer.
+     */
+    private static void registerReadRoutes(Gson gson) {
+        getSnapshot("/api/entity/info/", gson, (request, world) -> world.getInfo(request.queryParams("id")));
+
+        getSnapshot("/api/device/all/", gson, (request, world) -> {
+            Map<String, EntityInfoResponse> result = new HashMap<>();
+            world.listDeviceIds().forEach(id -> result.put(id, world.getInfo(id)));
+            return result;
+        });
+
+        getSnapshot("/api/satellite/all/", gson, (request, world) -> {
+            Map<String, EntityInfoResponse> result = new HashMap<>();
+            world.listSatelliteIds().forEach(id -> result.put(id, world.getInfo(id)));
+            return result;
+        });
+
+        getSnapshot("/api/entity/entitiesInRange/", gson, (request, world) -> {
+            return world.communicableEntitiesInRange(request.queryParams("id"))
+                    .stream().map(e -> world.getInfo(e)).collect(Collectors.toList());
+        });
+    }
+
+    /*
+     * Registers a projected read of the session's snapshot, tagged with the snapshot's version.
+     * A client that already has that version gets 304 and no body; anyone else gets the body last
+     * written for the same request if the simulation has not moved on since.
+     */
+    private static void getSnapshot(String path, Gson gson, BiFunction<Request, WorldSnapshot, Object> query) {
+        Spark.get(path, "application/json", (request, response) -> {
+            SessionState state = getSessionState(request);
+            EntityProjection projection = getProjection(request, gson);
+            WorldSnapshot world = state.read();
+            String tag = "\"" + state.getEpoch() + "-" + world.getVersion() + "\"";
+            response.type("application/json");
+            response.header("ETag", tag);
+            response.header("Cache-Control", "no-cache");
+            if (matchesTag(request.headers("If-None-Match"), tag)) {
+                response.status(304);
+                return "";
+            }
+            String key = request.pathInfo() + "?" + request.queryString();
+            return state.getResponseCache().get(key, world.getVersion(),
+                () -> gson.toJson(projection.apply(query.apply(request, world))));
+        });
+    }
+
+    /*
+     * Whether an If-None-Match header names the tag, comparing weakly as the header is meant to be.
+     */
+    private static boolean matchesTag(String ifNoneMatch, String tag) {
+        if (ifNoneMatch == null) return false;
+        for (String each : ifNoneMatch.split(",")) {
+            String candidate = each.trim();
+            if (candidate.startsWith("W/")) candidate = candidate.substring(2);
+            if (candidate.equals("*") || candidate.equals(tag)) return true;
+        }
+        return false;
+    }
+
+    /*
+     * The fields and fileData parameters of an entity query, which leave parts of every entity out.
+     */
+    private static EntityProjection getProjection(Request request, Gson gson) {
+        try {
+            return EntityProjection.parse(request.queryParams("fields"), request.queryParams("fileData"));
+        } catch (IllegalArgumentException e) {
+            throw Spark.halt(400, gson.toJson(e.getMessage()));
+        }
+    }
+
+    /*
+     * Number of ticks asked for, at least one.
+     */
+    private static int parseTicks(Request request) {
+        try {
+            return Math.max(1, Integer.parseInt(request.queryParamOrDefault("n", "1")));
+        } catch (NumberFormatException e) {
+            return 1;
         }
     }
 
     public static void main(String[] args) throws Exception {
         Scintilla.initialize();
-        GsonBuilder gsonBuilder = new GsonBuilder();
-
-        JsonSerializer<Angle> serializer = (Angle angle, Type typeOfId, JsonSerializationContext context) -> {
-            return new JsonPrimitive(angle.toRadians());
-        };
-        gsonBuilder.registerTypeAdapter(Angle.class, serializer);
-        Gson gson = gsonBuilder.create();
-
-        Spark.after((request, response) -> {
-            response.header("Access-Control-Allow-Origin", "*");
-            response.header("Access-Control-Allow-Methods", "*");
-            response.header("Access-Control-Allow-Headers", "*");
-        });
+        Spark.webSocket("/api/feed/", new TickFeedSocket(App::getTickFeed));
+        Gson gson = ResponseAdapters.register(new GsonBuilder(), ResponseAdapters.precisionFromEnvironment()).create();
+
+        Spark.after((request, response) -> allowCrossOrigin(response));
+
+        registerMetricsRoutes(gson);
+        registerSessionRoutes(gson);
+        registerJobRoutes(gson);
+        registerClockRoutes(gson);
+        registerScenarioRoutes(gson);
+        registerReadRoutes(gson);
 
         Spark.put("/api/device/", "application/json", (request, response) -> {
-            BlackoutController bc = getBlackoutController(request);
-            synchronized (bc) {
+            SessionState state = getSessionState(request);
+            return state.write(bc -> {
+                state.checkCanCreate(request.queryParams("deviceId"));
                 Angle position = Angle.fromRadians(Double.parseDouble(request.queryParams("position")));
                 boolean isMoving = Boolean.parseBoolean(request.queryParams("isMoving"));
                 bc.createDevice(request.queryParams("deviceId"), request.queryParams("type"), position, isMoving);
                 return "";
-            }
+            });
         }, gson::toJson);
 
         Spark.delete("/api/device/", "application/json", (request, response) -> {
-            BlackoutController bc = getBlackoutController(request);
-            synchronized (bc) {
+            return getSessionState(request).write(bc -> {
                 bc.removeDevice(request.queryParams("deviceId"));
                 return "";
-            }
+            });
         }, gson::toJson);
 
         Spark.put("/api/satellite/", "application/json", (request, response) -> {
-            BlackoutController bc = getBlackoutController(request);
-            synchronized (bc) {
+            SessionState state = getSessionState(request);
+            return state.write(bc -> {
+                state.checkCanCreate(request.queryParams("satelliteId"));
                 Angle position = Angle.fromRadians(Double.parseDouble(request.queryParams("position")));
                 double height = Double.parseDouble(request.queryParams("height"));
                 bc.createSatellite(request.queryParams("satelliteId"), request.queryParams("type"), height, position);
                 return "";
-            }
+            });
         }, gson::toJson);
 
         Spark.delete("/api/satellite/", "application/json", (request, response) -> {
-            BlackoutController bc = getBlackoutController(request);
-            synchronized (bc) {
+            return getSessionState(request).write(bc -> {
                 bc.removeSatellite(request.queryParams("satelliteId"));
                 return "";
-            }
-        }, gson::toJson);
-
-        Spark.get("/api/entity/info/", "application/json", (request, response) -> {
-            BlackoutController bc = getBlackoutController(request);
-            synchronized (bc) {
-                return bc.getInfo(request.queryParams("id"));
-            }
+            });
         }, gson::toJson);
 
         Spark.post("/api/device/file/", "application/json", (request, response) -> {
-            BlackoutController bc = getBlackoutController(request);
-            synchronized (bc) {
+            SessionState state = getSessionState(request);
+            return state.write(bc -> {
+                state.checkCanStore(request.body().length());
                 bc.addFileToDevice(request.queryParams("deviceId"), request.queryParams("fileName"), request.body());
                 return "";
-            }
-        }, gson::toJson);
-
-        Spark.get("/api/device/all/", "application/json", (request, response) -> {
-            BlackoutController bc = getBlackoutController(request);
-            synchronized (bc) {
-                Map<String, EntityInfoResponse> result = new HashMap<>();
-                bc.listDeviceIds().forEach(id -> result.put(id, bc.getInfo(id)));
-                return result;
-            }
-        }, gson::toJson);
-
-        Spark.get("/api/satellite/all/", "application/json", (request, response) -> {
-            BlackoutController bc = getBlackoutController(request);
-            synchronized (bc) {
-                Map<String, EntityInfoResponse> result = new HashMap<>();
-                bc.listSatelliteIds().forEach(id -> result.put(id, bc.getInfo(id)));
-                return result;
-            }
-        }, gson::toJson);
-
-        Spark.get("/api/entity/entitiesInRange/", "application/json", (request, response) -> {
-            BlackoutController bc = getBlackoutController(request);
-            synchronized (bc) {
-                return bc.communicableEntitiesInRange(request.queryParams("id"))
-                        .stream().map(e -> bc.getInfo(e)).collect(Collectors.toList());
-            }
+            });
         }, gson::toJson);
 
         Spark.post("/api/sendFile/", "application/json", (request, response) -> {
-            BlackoutController bc = getBlackoutController(request);
-            synchronized (bc) {
+            SessionState state = getSessionState(request);
+            return state.write(bc -> {
+                int size = bc.getFileSize(request.queryParams("fromId"), request.queryParams("fileName"));
+                if (size >= 0) state.checkCanStore(size);
                 try {
                     bc.sendFile(request.queryParams("fileName"), request.queryParams("fromId"),
                             request.queryParams("toId"));
@@ -142,44 +414,40 @@ public class App {
                 } catch (FileTransferException ex) {
                     return ex.getClass().getSimpleName() + ":" + ex.getMessage();
                 }
-            }
+            });
         }, gson::toJson);
 
         Spark.post("/api/createSlope/", "application/json", (request, response) -> {
-            BlackoutController bc = getBlackoutController(request);
-            synchronized (bc) {
+            return getSessionState(request).write(bc -> {
                 bc.createSlope(Integer.parseInt(request.queryParams("startAngle")),
                         Integer.parseInt(request.queryParams("endAngle")),
                         Integer.parseInt(request.queryParams("gradient")));
                 return "";
-            }
+            });
         }, gson::toJson);
 
         Spark.post("/api/simulate/", "application/json", (request, response) -> {
-            BlackoutController bc = getBlackoutController(request);
-            synchronized (bc) {
-                int n;
-                try {
-                    n = Integer.parseInt(request.queryParamOrDefault("n", "1"));
-                } catch (NumberFormatException e) {
-                    n = 1;
+            EntityProjection projection = getProjection(request, gson);
+            return getSessionState(request).write(bc -> {
+                int n = parseTicks(request);
+                if (Boolean.parseBoolean(request.queryParams("stream"))) {
+                    streamSimulation(bc, n, response, gson, projection);
+                    return "";
                 }
-                if (n < 1)
-                    n = 1;
 
                 List<Map<String, EntityInfoResponse>> results = new ArrayList<>();
                 for (int i = 0; i < n; i++) {
                     bc.simulate();
 
                     Map<String, EntityInfoResponse> result = new HashMap<>();
-                    bc.listSatelliteIds().forEach(id -> result.put(id, bc.getInfo(id)));
-                    bc.listDeviceIds().forEach(id -> result.put(id, bc.getInfo(id)));
+                    bc.listSatelliteIds().forEach(id -> result.put(id, bc.getInfo(id, projection)));
+                    bc.listDeviceIds().forEach(id -> result.put(id, bc.getInfo(id, projection)));
                     results.add(result);
                 }
 
-                return results;
-            }
-        }, gson::toJson);
+                return gson.toJson(projection.apply(results));
+            });
+        });
 
         Scintilla.start();
     }
@@ -1,7 +1,16 @@
 package unsw.blackout;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 import unsw.blackout.devices.Device;
 import unsw.blackout.devices.DesktopDevice;
@@ -17,60 +26,155 @@ import unsw.blackout.satellites.StandardSatellite;
 import unsw.blackout.satellites.TeleportingSatellite;
 import unsw.blackout.satellites.RelaySatellite;
 
+import unsw.metrics.RangeQueryEvent;
+import unsw.metrics.SendFileEvent;
+import unsw.metrics.SimulateEvent;
+import unsw.metrics.TickMetrics;
+import unsw.response.EntityProjection;
 import unsw.response.models.EntityInfoResponse;
+import unsw.response.models.FileInfoResponse;
 import unsw.utils.Angle;
-import unsw.utils.MathsHelper;
-import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
 
 public class BlackoutController {
-    private List<Device> devices = new ArrayList<Device>();
-    private List<Satellite> satellites = new ArrayList<Satellite>();
+    // Ticks over fewer entities than this are not worth splitting any further
+    private static final int PARALLEL_THRESHOLD = 512;
+
+    private EntityRegistry registry = new EntityRegistry();
+    // Pool that runs ticks in parallel, or null to run them on the calling thread
+    private ForkJoinPool simulationPool;
+    // Rebuilt lazily the first time they are needed after anything is created, removed or moved
+    private SpatialIndex spatialIndex;
+    private ConnectivitySnapshot connectivity;
+    // Simulation clock, and the transfers waiting to complete
+    private TransferScheduler scheduler = new TransferScheduler();
+    // Run after every simulate call; may be added to from other threads while a tick is running
+    private List<Runnable> tickListeners = new CopyOnWriteArrayList<>();
+    // Bumped by everything that changes what can be read about the simulation; read from other threads
+    private volatile long version = 0;
+    // Null unless the simulation is being timed, so an untimed tick only pays for a null check
+    private TickMetrics metrics;
 
     public void createDevice(String deviceId, String type, Angle position) {
+        Device device = newDevice(deviceId, type, position);
+        if (device != null) registry.addDevice(device);
+        this.invalidatePositions();
+        version++;
+    }
+
+    /*
+     * Makes a device of the given type, or null if there is no such type.
+     */
+    private static Device newDevice(String deviceId, String type, Angle position) {
         switch (type) {
-            case "HandheldDevice": devices.add(new HandheldDevice(deviceId, position)); break;
-            case "LaptopDevice": devices.add(new LaptopDevice(deviceId, position)); break;
-            case "DesktopDevice": devices.add(new DesktopDevice(deviceId, position)); break;
-            default: break;
+            case "HandheldDevice": return new HandheldDevice(deviceId, position);
+            case "LaptopDevice": return new LaptopDevice(deviceId, position);
+            case "DesktopDevice": return new DesktopDevice(deviceId, position);
+            default: return null;
         }
     }
 
     public void removeDevice(String deviceId) {
-        for (int i = 0; i < devices.size(); i++) {
-            if (devices.get(i).getDeviceId() == deviceId) {
-                devices.remove(i);
-            }
-        }
+        registry.removeDevice(deviceId);
+        this.invalidatePositions();
+        version++;
     }
 
     public void createSatellite(String satelliteId, String type, double height, Angle position) {
+        Satellite satellite = newSatellite(satelliteId, type, height, position);
+        if (satellite != null) registry.addSatellite(satellite);
+        this.invalidatePositions();
+        version++;
+    }
+
+    /*
+     * Makes a satellite of the given type, or null if there is no such type.
+     */
+    private static Satellite newSatellite(String satelliteId, String type, double height, Angle position) {
         switch (type) {
-            case "StandardSatellite": satellites.add(new StandardSatellite(satelliteId, height, position)); break;
-            case "TeleportingSatellite": satellites.add(new TeleportingSatellite(satelliteId, height, position)); break;
-            case "RelaySatellite": satellites.add(new RelaySatellite(satelliteId, height, position)); break;
-            default: break;
+            case "StandardSatellite": return new StandardSatellite(satelliteId, height, position);
+            case "TeleportingSatellite": return new TeleportingSatellite(satelliteId, height, position);
+            case "RelaySatellite": return new RelaySatellite(satelliteId, height, position);
+            default: return null;
         }
     }
 
-    public void removeSatellite(String satelliteId) {
-        for (int i = 0; i < satellites.size(); i++) {
-            if (satellites.get(i).getSatelliteId() == satelliteId) {
-                satellites.remove(i);
+    /**
+     * Adds everything in a batch in one go, as if each entity were created and each file added
+     * in turn, but with the positions indexed only once at the end.
+     *
+     * The whole batch is checked before anything is added, so an invalid batch changes nothing.
+     *
+     * @throws IllegalArgumentException describing the first problem found
+     */
+    public void load(EntityBatch batch) {
+        Set<String> ids = new HashSet<>();
+        Set<String> deviceIds = new HashSet<>();
+        List<Satellite> satellites = new ArrayList<>(batch.getNumberOfSatellites());
+        List<Device> devices = new ArrayList<>(batch.getNumberOfDevices());
+
+        for (EntityBatch.SatelliteSpec spec : batch.satellites()) {
+            checkEntity(spec.getId(), spec.getType(), spec.getPosition(), ids);
+            if (!Double.isFinite(spec.getHeight())) {
+                throw new IllegalArgumentException("Satellite " + spec.getId() + " has no height");
             }
+            Satellite satellite = newSatellite(spec.getId(), spec.getType(), spec.getHeight(), spec.getPosition());
+            if (satellite == null) throw new IllegalArgumentException("Unknown satellite type " + spec.getType());
+            satellites.add(satellite);
         }
+        for (EntityBatch.DeviceSpec spec : batch.devices()) {
+            checkEntity(spec.getId(), spec.getType(), spec.getPosition(), ids);
+            Device device = newDevice(spec.getId(), spec.getType(), spec.getPosition());
+            if (device == null) throw new IllegalArgumentException("Unknown device type " + spec.getType());
+            devices.add(device);
+            deviceIds.add(spec.getId());
+        }
+        for (EntityBatch.FileSpec spec : batch.files()) {
+            if (spec.getFilename() == null || spec.getContent() == null) {
+                throw new IllegalArgumentException("Every file needs a filename and content");
+            }
+            String deviceId = spec.getDeviceId();
+            boolean existingDevice = !ids.contains(deviceId) && registry.getDevice(deviceId) != null;
+            if (!deviceIds.contains(deviceId) && !existingDevice) {
+                throw new IllegalArgumentException("File " + spec.getFilename() + " is for unknown device " + deviceId);
+            }
+        }
+
+        registry.reserve(satellites.size() + devices.size());
+        for (Satellite satellite : satellites) registry.addSatellite(satellite);
+        for (Device device : devices) registry.addDevice(device);
+        for (EntityBatch.FileSpec spec : batch.files()) {
+            registry.getDevice(spec.getDeviceId()).addFile(new File(spec.getFilename(), spec.getContent()));
+        }
+        this.invalidatePositions();
+        version++;
+    }
+
+    private static void checkEntity(String id, String type, Angle position, Set<String> ids) {
+        if (id == null || id.isEmpty()) throw new IllegalArgumentException("Every entity needs an ID");
+        if (type == null) throw new IllegalArgumentException(id + " has no type");
+        if (position == null || !Double.isFinite(position.toRadians())) {
+            throw new IllegalArgumentException(id + " has no position");
+        }
+        if (!ids.add(id)) throw new IllegalArgumentException(id + " appears more than once");
+    }
+
+    public void removeSatellite(String satelliteId) {
+        registry.removeSatellite(satelliteId);
+        this.invalidatePositions();
+        version++;
     }
 
     public List<String> listDeviceIds() {
-        List<String> deviceIds = new ArrayList<String>();
-        for (Device device : devices) {
+        List<String> deviceIds = new ArrayList<String>(registry.getNumberOfDevices());
+        for (Device device : registry.devices()) {
             deviceIds.add(device.getDeviceId());
         }
         return deviceIds;
     }
 
     public List<String> listSatelliteIds() {
-        List<String> satelliteIds = new ArrayList<String>();
-        for (Satellite satellite : satellites) {
+        List<String> satelliteIds = new ArrayList<String>(registry.getNumberOfSatellites());
+        for (Satellite satellite : registry.satellites()) {
             satelliteIds.add(satellite.getSatelliteId());
         }
         return satelliteIds;
@@ -80,264 +184,401 @@ public class BlackoutController {
         Device device = this.getDeviceFromId(deviceId);
         File file = new File(filename, content);
         device.addFile(file);
+        version++;
     }
 
     private Device getDeviceFromId(String id) {
-        for (Device device : devices) {
-            if (device.getDeviceId().equals(id)) {
-                return device;
-            }
-        }
-        return null;
+        return registry.getDevice(id);
     }
 
     private Satellite getSatelliteFromId(String id) {
-        for (Satellite satellite : satellites) {
-            if (satellite.getSatelliteId().equals(id)) {
-                return satellite;
-            }
-        }
-        return null;
+        return registry.getSatellite(id);
+    }
+
+    /*
+     * Gets the general type of an entity from it's ID. That is, either Satellite or Device.
+     * Unknown IDs are treated as devices.
+     */
+    private String getType(String id) {
+        String kind = registry.getKind(id);
+        if (kind == null) return EntityRegistry.DEVICE;
+        return kind;
     }
 
     public EntityInfoResponse getInfo(String id) {
-        switch (this.getType(id)) {
-            case ("Device"): return this.getDeviceFromId(id).getInfoDevice();
-            case ("Satellite"): return this.getSatelliteFromId(id).getInfoSatellite();
+        return this.getInfo(id, EntityProjection.ALL);
+    }
+
+    /**
+     * Info that only builds the files, and their contents, if the projection wants them.
+     * The other fields are always filled in.
+     */
+    public EntityInfoResponse getInfo(String id, EntityProjection projection) {
+        String kind = registry.getKind(id);
+        if (kind == null) return null;
+        boolean withFiles = projection.hasFiles();
+        boolean withFileData = projection.hasFileData();
+        switch (kind) {
+            case (EntityRegistry.DEVICE): return this.getDeviceFromId(id).getInfoDevice(withFiles, withFileData);
+            case (EntityRegistry.SATELLITE):
+                return this.getSatelliteFromId(id).getInfoSatellite(withFiles, withFileData);
             default: return null;
         }
     }
 
-    public void simulate() {
-        for (Satellite satellite : satellites) {
-            // Update Position of Satellite
-            satellite.updatePosition();
-
-            satellite.updateFileUpload();
-            if (satellite.isTransferring() || satellite.getTransferFromId() == "") continue;
-            satellite.toggleSending(false);
-            }
+    /**
+     * Size of one of an entity's files, counting a file still arriving at its full size, or -1
+     * if the entity or file does not exist.
+     */
+    public int getFileSize(String id, String fileName) {
+        String kind = registry.getKind(id);
+        File file = null;
+        if (EntityRegistry.DEVICE.equals(kind)) file = this.getDeviceFromId(id).getFileFromFilename(fileName);
+        if (EntityRegistry.SATELLITE.equals(kind)) file = this.getSatelliteFromId(id).getFileFromFilename(fileName);
+        return (file == null) ? -1 : file.getSize();
+    }
 
-        for (Device device : devices) {
-            // Update Position of Device
-            device.updateFileUpload();
-            if (device.isTransferring() || device.getTransferFromId().equals("")) continue;
-            device.toggleSending(false);
-        }
+    /**
+     * Chooses whether ticks update entities on the calling thread or in parallel on the
+     * common fork-join pool. Both give exactly the same results.
+     */
+    public void setParallelSimulation(boolean parallel) {
+        setSimulationPool(parallel ? ForkJoinPool.commonPool() : null);
     }
 
     /**
-     * Simulate for the specified number of minutes.
-     * You shouldn't need to modify this function.
+     * Runs ticks in parallel on the given pool, or on the calling thread if it is null.
      */
-    public void simulate(int numberOfMinutes) {
-        for (int i = 0; i < numberOfMinutes; i++) {
-            simulate();
-        }
+    public void setSimulationPool(ForkJoinPool pool) {
+        this.simulationPool = pool;
     }
 
-    public List<String> communicableEntitiesInRange(String id) {
-        if (this.getType(id) == "Satellite") return communicableEntitiesInRangeSatellite(this.getSatelliteFromId(id));
-        else return communicableEntitiesInRangeDevice(this.getDeviceFromId(id));
+    public boolean isParallelSimulation() {
+        return simulationPool != null;
     }
 
     /*
-     * CommuicableEntities for satellite ONLY
-     *
-     * Adds all relevant satellites to list. If satellite is Relay, add to list of
-     * relay and check those as well (almost like a stack/recursion with).
+     * A tick only moves satellites; each satellite only changes its own position, so they can
+     * all be moved at once. Transfers are not touched at all unless one of them is due to complete.
      */
-    private List<String> communicableEntitiesInRangeSatellite(Satellite satelliteMain) {
-        List<String> entitiesInRange = new ArrayList<>();
-        List<String> checkList = new ArrayList<>();
-        checkList.add(satelliteMain.getSatelliteId());
-
-        for (int i = 0; i < checkList.size(); i++) {
-            // Loops for main satellite AND any found relay satellites
-            for (Satellite satellite : satellites) {
-                if (this.isSatelliteInRange(satellite, this.getSatelliteFromId(checkList.get(i)))) {
-                    if (satellite instanceof RelaySatellite && !checkList.contains(satellite.getSatelliteId())) {
-                        // Add relay to list of relays if yet to be checked
-                        checkList.add(satellite.getSatelliteId());
-                    }
-                    entitiesInRange.add(satellite.getSatelliteId());
-                }
-            }
-            for (Device device : devices) {
-                if (this.isDeviceInRange(device, this.getSatelliteFromId(checkList.get(i)))) {
-                    entitiesInRange.add(device.getDeviceId());
-                }
-            }
+    public void simulate() {
+        this.tick(1, Satellite::updatePosition);
+    }
+
+    private void tick(int minutes, Consumer<Satellite> move) {
+        SimulateEvent event = new SimulateEvent();
+        event.begin();
+        long bytesMoved = scheduler.getBytesMoved();
+        this.invalidatePositions();
+        if (metrics == null) {
+            this.runTick(registry.satelliteArray(), move);
+            scheduler.advance(minutes);
+        } else {
+            long start = System.nanoTime();
+            this.runTick(registry.satelliteArray(), move);
+            long moved = System.nanoTime();
+            scheduler.advance(minutes);
+            metrics.recordTick(moved - start, System.nanoTime() - moved, scheduler.getActiveTransfers(),
+                               scheduler.getBytesMoved() - bytesMoved);
+        }
+        version++;
+        event.record(minutes, scheduler.getTick(), registry.getNumberOfSatellites(), registry.getNumberOfDevices(),
+                     scheduler.getActiveTransfers(), scheduler.getBytesMoved() - bytesMoved);
+        this.fireTickListeners();
+    }
+
+    private <T> void runTick(T[] entities, Consumer<T> update) {
+        if (simulationPool == null || entities.length <= PARALLEL_THRESHOLD) {
+            for (int i = 0; i < entities.length; i++) update.accept(entities[i]);
+        } else {
+            simulationPool.invoke(new TickTask<>(entities, 0, entities.length, update));
         }
-        return cleanEntitiesInRangeList(entitiesInRange, satelliteMain.getSatelliteId());
     }
 
     /*
-     * CommunicableEntities for devices ONLY
-     *
-     * Similar to above, adds any found relay satellites to a list and checks those as well.
+     * Splits a slice of entities in half until it is small enough to update directly.
      */
-    private List<String> communicableEntitiesInRangeDevice(Device deviceMain) {
-        List<String> entitiesInRange = new ArrayList<>();
-        List<String> checkList = new ArrayList<>();
-
-        // Initial search for relays
-        for (Satellite satellite : satellites) {
-            if (this.isDeviceInRange(deviceMain, satellite)) {
-                if (satellite instanceof RelaySatellite) checkList.add(satellite.getSatelliteId());
-                entitiesInRange.add(satellite.getSatelliteId());
-            }
+    private static class TickTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final T[] entities;
+        private final int from;
+        private final int to;
+        private final Consumer<T> update;
+
+        TickTask(T[] entities, int from, int to, Consumer<T> update) {
+            this.entities = entities;
+            this.from = from;
+            this.to = to;
+            this.update = update;
         }
 
-        // If any relays are found, they will be checked here. Otherwise, this part will be skipped.
-        for (int i = 0; i < checkList.size(); i++) {
-            for (Satellite satellite : satellites) {
-                if (this.isSatelliteInRange(satellite, this.getSatelliteFromId(checkList.get(i)))) {
-                    if (satellite instanceof RelaySatellite && !checkList.contains(satellite.getSatelliteId())) {
-                        checkList.add(satellite.getSatelliteId());
-                    }
-                    entitiesInRange.add(satellite.getSatelliteId());
-                }
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                for (int i = from; i < to; i++) update.accept(entities[i]);
+                return;
             }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TickTask<>(entities, from, middle, update), new TickTask<>(entities, middle, to, update));
         }
-        return cleanEntitiesInRangeList(entitiesInRange, deviceMain.getDeviceId());
     }
 
-    /*
-     * Removes duplicates and the original entity's ID from a list of communicable Entities.
+    /**
+     * Simulate for the specified number of minutes.
+     *
+     * Transfers progress on their own clock and never depend on where anything is, so every
+     * satellite jumps straight to where it will be and the transfers that complete along
+     * the way are processed in order.
      */
-    private List<String> cleanEntitiesInRangeList(List<String> listOfEntities, String original) {
-        List<String> cleanedList = new ArrayList<>();
-        for (String item : listOfEntities) {
-            if (cleanedList.contains(item) || item == original) continue;
-            if (this.compatibleIds(item, original)) cleanedList.add(item);
-        }
-        return cleanedList;
+    public void simulate(int numberOfMinutes) {
+        if (numberOfMinutes <= 0) return;
+        this.tick(numberOfMinutes, satellite -> satellite.advancePosition(numberOfMinutes));
     }
 
-    /*
-     * Checks two IDs to see if they are of compatible types to make a transfer.
+    /**
+     * Times every tick, range evaluation and snapshot from now on into the given metrics, or
+     * stops timing them if it is null.
      */
-    private boolean compatibleIds(String id1, String id2) {
-        String type1 = this.getType(id1);
-        String type2 = this.getType(id2);
-
-        if (type1.equals(type2) && type1.equals("Satellite")) return true;
-        if (type1.equals("Device") && type2.equals("Satellite")) {
-            return this.getSatelliteFromId(id2).supportsDevice(this.getDeviceFromId(id1));
-        } else if (type1.equals("Satellite") && type2.equals("Device")) {
-            return this.getSatelliteFromId(id1).supportsDevice(this.getDeviceFromId(id2));
-        }
-        return false;
+    public void setMetrics(TickMetrics metrics) {
+        this.metrics = metrics;
     }
 
-    /*
-     * Gets the general type of an entity from it's ID. That is, either Satellite or Device.
+    /**
+     * A number that goes up whenever anything about the simulation that can be read changes, that is
+     * on every tick and every entity or file added, removed or sent. Safe to read from any thread.
      */
-    private String getType(String id) {
-        Satellite tempSatellite = this.getSatelliteFromId(id);
-        if (tempSatellite == null) return "Device";
-        return "Satellite";
+    public long getVersion() {
+        return version;
     }
 
-    /*
-     * Checks to see if a device is in FIRST ORDER contact with a satellite. That is to say,
-     * not through a relay.
+    /**
+     * Number of minutes simulated so far.
+     */
+    public long getCurrentTick() {
+        return scheduler.getTick();
+    }
+
+    /**
+     * Registers a listener to run on the simulating thread after every call to simulate. After
+     * simulate(n) it runs once, when all n minutes are done.
+     */
+    public void addTickListener(Runnable listener) {
+        tickListeners.add(listener);
+    }
+
+    public void removeTickListener(Runnable listener) {
+        tickListeners.remove(listener);
+    }
+
+    private void fireTickListeners() {
+        for (Runnable listener : tickListeners) listener.run();
+    }
+
+    /**
+     * Takes an immutable copy of everything readable about the simulation right now, labelled
+     * with its current version.
+     */
+    public WorldSnapshot snapshot() {
+        // Worked out first so it is timed on its own
+        ConnectivitySnapshot inRange = this.getConnectivity();
+        long start = (metrics == null) ? 0 : System.nanoTime();
+        List<String> satelliteIds = this.listSatelliteIds();
+        List<String> deviceIds = this.listDeviceIds();
+        Map<String, EntityInfoResponse> entities = new HashMap<>();
+        for (String id : satelliteIds) entities.put(id, this.getInfo(id));
+        for (String id : deviceIds) entities.put(id, this.getInfo(id));
+        WorldSnapshot snapshot = new WorldSnapshot(this.getCurrentTick(), this.getVersion(), satelliteIds, deviceIds,
+                                                   entities, inRange);
+        if (metrics != null) metrics.recordSnapshot(System.nanoTime() - start);
+        return snapshot;
+    }
+
+    /**
+     * Number of devices and satellites in the simulation.
+     */
+    public int getNumberOfEntities() {
+        return registry.getNumberOfDevices() + registry.getNumberOfSatellites();
+    }
+
+    /**
+     * Total size of every file held by every entity, counting files still arriving at their full size.
      */
-    private boolean isDeviceInRange(Device device, Satellite satellite) {
-        if (device == null || satellite == null) return false;
-        boolean visible = MathsHelper.isVisible(RADIUS_OF_JUPITER, device.getPosition(),
-                                                satellite.getHeight(), satellite.getPosition());
+    public long getStoredFileBytes() {
+        long total = 0;
+        for (Device device : registry.devices()) total += device.getTotalSizeOfFiles();
+        for (Satellite satellite : registry.satellites()) total += satellite.getTotalSizeOfFiles();
+        return total;
+    }
+
+    /**
+     * Whether the given satellite is moving clockwise, which its info does not say.
+     */
+    public boolean isClockwise(String satelliteId) {
+        return registry.getSatellite(satelliteId).isClockwise();
+    }
+
+    /**
+     * Rebuilds a simulation from the info of its entities, with the clock at the given tick.
+     *
+     * Satellites carry on in the direction given for them, or the one they would start out with
+     * if none is given. Only files that had finished arriving come back. Transfers still in
+     * flight are dropped along with their partial files, as if they had gone out of range.
+     *
+     * @param clockwise the direction of each satellite, by ID
+     */
+    public static BlackoutController restore(long tick, Collection<EntityInfoResponse> satellites,
+                                             Collection<EntityInfoResponse> devices,
+                                             Map<String, Boolean> clockwise) {
+        BlackoutController controller = new BlackoutController();
+        controller.scheduler = new TransferScheduler(tick);
+        for (EntityInfoResponse info : satellites) {
+            controller.createSatellite(info.getDeviceId(), info.getType(), info.getHeight(), info.getPosition());
+            Satellite satellite = controller.getSatelliteFromId(info.getDeviceId());
+            if (satellite == null) continue;
+            Boolean direction = clockwise.get(info.getDeviceId());
+            if (direction != null) satellite.restoreClockwise(direction);
+            for (FileInfoResponse file : info.getFiles().values()) {
+                if (file.hasTransferCompleted()) satellite.addFile(new File(file.getFilename(), file.getData()));
+            }
+        }
+        for (EntityInfoResponse info : devices) {
+            controller.createDevice(info.getDeviceId(), info.getType(), info.getPosition());
+            Device device = controller.getDeviceFromId(info.getDeviceId());
+            if (device == null) continue;
+            for (FileInfoResponse file : info.getFiles().values()) {
+                if (file.hasTransferCompleted()) device.addFile(new File(file.getFilename(), file.getData()));
+            }
+        }
+        return controller;
+    }
+
+    public List<String> communicableEntitiesInRange(String id) {
+        RangeQueryEvent event = new RangeQueryEvent();
+        event.begin();
+        boolean rebuilt = connectivity == null;
+        List<String> inRange = this.getConnectivity().communicableEntitiesInRange(id);
+        event.record(id, inRange.size(), rebuilt);
+        return inRange;
+    }
 
-        double distance = MathsHelper.getDistance(satellite.getHeight(), satellite.getPosition(), device.getPosition());
-        boolean closeEnough = satellite.getRange() >= distance && device.getRange() >= distance;
+    /*
+     * The spatial index and connectivity snapshot are both built on demand and reused until
+     * something is created, removed or moved.
+     */
+    private SpatialIndex getSpatialIndex() {
+        if (spatialIndex == null) spatialIndex = new SpatialIndex(registry.satellites(), registry.devices());
+        return spatialIndex;
+    }
 
-        return (visible && closeEnough) && satellite.supportsDevice(device);
+    private ConnectivitySnapshot getConnectivity() {
+        if (connectivity != null) return connectivity;
+        long start = (metrics == null) ? 0 : System.nanoTime();
+        connectivity = new ConnectivitySnapshot(registry, this.getSpatialIndex());
+        if (metrics != null) metrics.recordConnectivity(System.nanoTime() - start, connectivity.getRangeChecks());
+        return connectivity;
     }
 
-        /*
-     * Checks to see if a satellite is in FIRST ORDER contact with another satellite. That is to say,
-     * not through a relay.
+    /*
+     * Forgets everything derived from entity positions.
      */
-    private boolean isSatelliteInRange(Satellite satellite1, Satellite satellite2) {
-        if (satellite1.getSatelliteId() == satellite2.getSatelliteId()) return false;
-        if (satellite1 == null || satellite2 == null) return false;
-        boolean visible = MathsHelper.isVisible(satellite1.getHeight(), satellite1.getPosition(),
-                                                satellite2.getHeight(), satellite2.getPosition());
-        double distance = MathsHelper.getDistance(satellite1.getHeight(), satellite1.getPosition(),
-                                                  satellite2.getHeight(), satellite2.getPosition());
-        boolean closeEnough = satellite1.getRange() >= distance && satellite2.getRange() >= distance;
-        return visible && closeEnough;
+    private void invalidatePositions() {
+        spatialIndex = null;
+        connectivity = null;
     }
 
     public void sendFile(String fileName, String fromId, String toId) throws FileTransferException {
+        SendFileEvent event = new SendFileEvent();
+        event.begin();
+        try {
+            this.startTransfer(fileName, fromId, toId);
+        } catch (FileTransferException e) {
+            event.record(fileName, fromId, toId, scheduler.getActiveTransfers(), e.getClass().getSimpleName());
+            throw e;
+        }
+        event.record(fileName, fromId, toId, scheduler.getActiveTransfers(), null);
+    }
+
+    private void startTransfer(String fileName, String fromId, String toId) throws FileTransferException {
         String fromType = this.getType(fromId);
         String toType = this.getType(toId);
 
         // Satellite to Satellite
-        if (fromType.equals("Satellite") && toType.equals("Satellite")) {
+        if (fromType.equals(EntityRegistry.SATELLITE) && toType.equals(EntityRegistry.SATELLITE)) {
             Satellite satelliteFrom = this.getSatelliteFromId(fromId);
             Satellite satelliteTo = this.getSatelliteFromId(toId);
             File file = satelliteFrom.getFileFromFilename(fileName);
 
             // Exceptions
-            if (!satelliteFrom.containsFile(fileName)) throw new VirtualFileNotFoundException(fileName);
-            if (satelliteFrom.isSending()) throw new VirtualFileNoBandwidthException(satelliteFrom.getSatelliteId());
-            if (satelliteTo.isTransferring()) throw new VirtualFileNoBandwidthException(satelliteTo.getSatelliteId());
+            if (!isSendable(file)) throw new VirtualFileNotFoundException(fileName);
+            if (!satelliteFrom.getTransfers().canSend()) {
+                throw new VirtualFileNoBandwidthException(satelliteFrom.getSatelliteId());
+            }
+            if (!satelliteTo.getTransfers().canReceive()) {
+                throw new VirtualFileNoBandwidthException(satelliteTo.getSatelliteId());
+            }
             if (satelliteTo.containsFile(fileName)) throw new VirtualFileAlreadyExistsException(fileName);
 
             String canFit = satelliteTo.canFit(file);
             if (!canFit.equals("")) throw new VirtualFileNoStorageSpaceException(canFit);
 
-            // Some satellites have have a smaller receiving rate than sending rate, so the minimum is taken
-            if (satelliteTo.getReceiveRate() < satelliteFrom.getSendRate()) {
-                satelliteTo.queueFile(file, satelliteTo.getReceiveRate(), satelliteFrom.getSatelliteId());
-            } else {
-                satelliteTo.queueFile(file, satelliteFrom.getSendRate(), satelliteFrom.getSatelliteId());
-            }
-            satelliteTo.toggleSending(true);
+            // Some satellites have have a smaller receiving rate than sending rate, the transfer takes the minimum
+            satelliteTo.queueFile(scheduler.start(file, satelliteFrom.getSatelliteId(), toId,
+                                                  satelliteFrom.getTransfers(), satelliteTo.getTransfers()));
         }
 
         // Device to Satellite
-        if (fromType.equals("Device") && toType.equals("Satellite")) {
+        if (fromType.equals(EntityRegistry.DEVICE) && toType.equals(EntityRegistry.SATELLITE)) {
             Satellite satellite = this.getSatelliteFromId(toId);
             Device device = this.getDeviceFromId(fromId);
             File file = device.getFileFromFilename(fileName);
 
             // Exceptions
-            if (!device.containsFile(fileName)) throw new VirtualFileNotFoundException(fileName);
-            if (satellite.isTransferring()) throw new VirtualFileNoBandwidthException(satellite.getSatelliteId());
+            if (!isSendable(file)) throw new VirtualFileNotFoundException(fileName);
+            if (!satellite.getTransfers().canReceive()) {
+                throw new VirtualFileNoBandwidthException(satellite.getSatelliteId());
+            }
             if (satellite.containsFile(fileName)) throw new VirtualFileAlreadyExistsException(fileName);
 
             String canFit = satellite.canFit(file);
             if (!canFit.equals("")) throw new VirtualFileNoStorageSpaceException(canFit);
 
             // Devices have unlimited bandwidth, the only limitation is the satellite.
-            satellite.queueFile(file, satellite.getReceiveRate(), device.getDeviceId());
-            device.toggleSending(true);
+            satellite.queueFile(scheduler.start(file, device.getDeviceId(), toId,
+                                                device.getTransfers(), satellite.getTransfers()));
         }
 
         // Satellite to Device
-        if (fromType.equals("Satellite") && toType.equals("Device")) {
+        if (fromType.equals(EntityRegistry.SATELLITE) && toType.equals(EntityRegistry.DEVICE)) {
             Satellite satellite = this.getSatelliteFromId(fromId);
             Device device = this.getDeviceFromId(toId);
             File file = satellite.getFileFromFilename(fileName);
 
             // Exceptions
             if (device.containsFile(fileName)) throw new VirtualFileAlreadyExistsException(fileName);
-            if (device.isTransferring()) throw new VirtualFileNoBandwidthException(device.getDeviceId());
-            if (satellite.isSending()) throw new VirtualFileNoBandwidthException(satellite.getSatelliteId());
-            if (!satellite.containsFile(fileName)) throw new VirtualFileNotFoundException(fileName);
+            if (!satellite.getTransfers().canSend()) {
+                throw new VirtualFileNoBandwidthException(satellite.getSatelliteId());
+            }
+            if (!isSendable(file)) throw new VirtualFileNotFoundException(fileName);
 
             // Devices have unlimited bandwidth, the only limitation is the satellite.
-            device.queueFile(file, satellite.getSendRate(), satellite.getSatelliteId());
-            satellite.toggleSending(true);
+            device.queueFile(scheduler.start(file, satellite.getSatelliteId(), toId,
+                                             satellite.getTransfers(), device.getTransfers()));
         }
+        version++;
+    }
+
+    /*
+     * Only files that have finished arriving can be sent on. This also keeps every tick free of
+     * dependencies between entities, since a sender's file never changes while it is being read.
+     */
+    private static boolean isSendable(File file) {
+        return file != null && file.isTransferCompleted();
     }
 
     // Verifies if two entities are in Range in any order of contact.
     public boolean isInRange(String id1, String id2) {
-        return communicableEntitiesInRange(id1).contains(id2);
+        return this.getConnectivity().isInRange(id1, id2);
     }
 
     public void createDevice(String deviceId, String type, Angle position, boolean isMoving) {
@@ -0,0 +1,249 @@
+package unsw.blackout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import unsw.blackout.devices.Device;
+import unsw.blackout.satellites.RelaySatellite;
+import unsw.blackout.satellites.Satellite;
+
+/**
+ * Who can talk to whom at one instant, relays included.
+ *
+ * The snapshot is built in one pass over every in-range pair of entities. Relay satellites
+ * that can see each other are merged into relay groups with union-find, and each group
+ * remembers everything its members can reach. A range query is then the union of an
+ * entity's direct neighbours and the reach of the relay groups it touches, and checking
+ * a single pair is a handful of hash lookups.
+ *
+ * A snapshot never changes once built, so it has to be thrown away whenever anything is
+ * created, removed or moved. For the same reason each entity's answer is worked out the first
+ * time it is asked for and shared by every later query, which then allocates nothing.
+ */
+public class ConnectivitySnapshot {
+    private Map<String, Node> nodes = new HashMap<>();
+    // Pairs the spatial index put forward that then had to be checked properly
+    private long rangeChecks = 0;
+
+    /*
+     * One entity and everything it can reach directly.
+     */
+    private static class Node {
+        private final int ordinal;
+        private final Satellite satellite;
+        private final Device device;
+        private final Set<String> satellites = new LinkedHashSet<>();
+        private final Set<String> devices = new LinkedHashSet<>();
+        private final Set<RelayGroup> relayGroups = new LinkedHashSet<>();
+        // Worked out on the first range query; immutable, so safe to hand to any thread
+        private volatile List<String> inRange;
+
+        Node(int ordinal, Satellite satellite, Device device) {
+            this.ordinal = ordinal;
+            this.satellite = satellite;
+            this.device = device;
+        }
+    }
+
+    /*
+     * Relays that can pass messages between each other, and everything any of them can reach.
+     */
+    private static class RelayGroup {
+        private final Set<String> satellites = new LinkedHashSet<>();
+        private final Set<String> devices = new LinkedHashSet<>();
+    }
+
+    public ConnectivitySnapshot(EntityRegistry registry, SpatialIndex index) {
+        List<Satellite> satellites = new ArrayList<>(registry.satellites());
+        for (int i = 0; i < satellites.size(); i++) {
+            nodes.put(satellites.get(i).getSatelliteId(), new Node(i, satellites.get(i), null));
+        }
+        for (Device device : registry.devices()) {
+            nodes.put(device.getDeviceId(), new Node(-1, null, device));
+        }
+
+        int[] parents = new int[satellites.size()];
+        for (int i = 0; i < parents.length; i++) parents[i] = i;
+
+        // Link every in-range pair once, joining relays that can see each other
+        List<Satellite> nearbySatellites = new ArrayList<>();
+        List<Device> nearbyDevices = new ArrayList<>();
+        for (Satellite satellite : satellites) {
+            Node node = nodes.get(satellite.getSatelliteId());
+            double angle = satellite.getPositionRadians();
+
+            nearbySatellites.clear();
+            index.satellitesNear(angle, satellite.getHeight(), satellite.getRange(), nearbySatellites);
+            for (Satellite other : nearbySatellites) {
+                Node otherNode = nodes.get(other.getSatelliteId());
+                if (otherNode.ordinal <= node.ordinal) continue;
+                rangeChecks++;
+                if (!isSatelliteInRange(other, satellite)) continue;
+
+                node.satellites.add(other.getSatelliteId());
+                otherNode.satellites.add(satellite.getSatelliteId());
+                if (satellite instanceof RelaySatellite && other instanceof RelaySatellite) {
+                    union(parents, node.ordinal, otherNode.ordinal);
+                }
+            }
+
+            nearbyDevices.clear();
+            index.devicesNear(angle, satellite.getHeight(), satellite.getRange(), nearbyDevices);
+            for (Device device : nearbyDevices) {
+                rangeChecks++;
+                if (!isDeviceInRange(device, satellite)) continue;
+                node.devices.add(device.getDeviceId());
+                nodes.get(device.getDeviceId()).satellites.add(satellite.getSatelliteId());
+            }
+        }
+
+        // Collect what each relay group can reach
+        Map<Integer, RelayGroup> groupsByRoot = new HashMap<>();
+        RelayGroup[] groupOf = new RelayGroup[satellites.size()];
+        for (int i = 0; i < satellites.size(); i++) {
+            if (!(satellites.get(i) instanceof RelaySatellite)) continue;
+            RelayGroup group = groupsByRoot.computeIfAbsent(find(parents, i), root -> new RelayGroup());
+            Node relay = nodes.get(satellites.get(i).getSatelliteId());
+            group.satellites.addAll(relay.satellites);
+            group.devices.addAll(relay.devices);
+            groupOf[i] = group;
+        }
+
+        // Note which relay groups every entity can hand messages to
+        for (Node node : nodes.values()) {
+            if (node.ordinal >= 0 && groupOf[node.ordinal] != null) node.relayGroups.add(groupOf[node.ordinal]);
+            for (String satelliteId : node.satellites) {
+                RelayGroup group = groupOf[nodes.get(satelliteId).ordinal];
+                if (group != null) node.relayGroups.add(group);
+            }
+        }
+    }
+
+    /**
+     * Number of pairs whose range was checked while building the snapshot.
+     */
+    public long getRangeChecks() {
+        return rangeChecks;
+    }
+
+    /**
+     * Lists every entity the given entity can transfer files with, directly or through any
+     * chain of relay satellites. The list is shared and cannot be changed.
+     */
+    public List<String> communicableEntitiesInRange(String id) {
+        Node node = nodes.get(id);
+        if (node == null) return Collections.emptyList();
+        List<String> inRange = node.inRange;
+        if (inRange == null) node.inRange = inRange = this.findInRange(id, node);
+        return inRange;
+    }
+
+    /*
+     * Two threads asking at once may both work it out, which is harmless.
+     */
+    private List<String> findInRange(String id, Node node) {
+        Set<String> entitiesInRange = new LinkedHashSet<>();
+        if (node.satellite != null) {
+            // Satellites reach other satellites and supported devices, directly or through relays
+            entitiesInRange.addAll(node.satellites);
+            addSupportedDevices(node.satellite, node.devices, entitiesInRange);
+            for (RelayGroup group : node.relayGroups) {
+                entitiesInRange.addAll(group.satellites);
+                addSupportedDevices(node.satellite, group.devices, entitiesInRange);
+            }
+            entitiesInRange.remove(id);
+        } else {
+            // Devices only reach satellites that support them, directly or through relays
+            addSupportingSatellites(node.device, node.satellites, entitiesInRange);
+            for (RelayGroup group : node.relayGroups) {
+                addSupportingSatellites(node.device, group.satellites, entitiesInRange);
+            }
+        }
+        return List.copyOf(entitiesInRange);
+    }
+
+    /**
+     * Checks whether the second entity is one of the first entity's communicable entities.
+     */
+    public boolean isInRange(String id1, String id2) {
+        Node node = nodes.get(id1);
+        Node other = nodes.get(id2);
+        if (node == null || other == null || node == other) return false;
+
+        if (node.satellite != null && other.satellite != null) {
+            if (node.satellites.contains(id2)) return true;
+            for (RelayGroup group : node.relayGroups) {
+                if (group.satellites.contains(id2)) return true;
+            }
+        } else if (node.satellite != null) {
+            if (!node.satellite.supportsDevice(other.device)) return false;
+            if (node.devices.contains(id2)) return true;
+            for (RelayGroup group : node.relayGroups) {
+                if (group.devices.contains(id2)) return true;
+            }
+        } else if (other.satellite != null) {
+            if (!other.satellite.supportsDevice(node.device)) return false;
+            if (node.satellites.contains(id2)) return true;
+            for (RelayGroup group : node.relayGroups) {
+                if (group.satellites.contains(id2)) return true;
+            }
+        }
+        return false;
+    }
+
+    private void addSupportedDevices(Satellite satellite, Set<String> deviceIds, Set<String> result) {
+        for (String deviceId : deviceIds) {
+            if (satellite.supportsDevice(nodes.get(deviceId).device)) result.add(deviceId);
+        }
+    }
+
+    private void addSupportingSatellites(Device device, Set<String> satelliteIds, Set<String> result) {
+        for (String satelliteId : satelliteIds) {
+            if (nodes.get(satelliteId).satellite.supportsDevice(device)) result.add(satelliteId);
+        }
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parents, int a, int b) {
+        parents[find(parents, a)] = find(parents, b);
+    }
+
+    /*
+     * Checks to see if a device is in FIRST ORDER contact with a satellite. That is to say,
+     * not through a relay.
+     */
+    private static boolean isDeviceInRange(Device device, Satellite satellite) {
+        boolean visible = PositionStore.isVisible(device.getX(), device.getY(), satellite.getX(), satellite.getY());
+
+        double distance = PositionStore.distance(satellite.getX(), satellite.getY(), device.getX(), device.getY());
+        boolean closeEnough = satellite.getRange() >= distance && device.getRange() >= distance;
+
+        return (visible && closeEnough) && satellite.supportsDevice(device);
+    }
+
+    /*
+     * Checks to see if a satellite is in FIRST ORDER contact with another satellite. That is to say,
+     * not through a relay.
+     */
+    private static boolean isSatelliteInRange(Satellite satellite1, Satellite satellite2) {
+        if (satellite1 == satellite2) return false;
+        boolean visible = PositionStore.isVisible(satellite1.getX(), satellite1.getY(),
+                                                  satellite2.getX(), satellite2.getY());
+        double distance = PositionStore.distance(satellite1.getX(), satellite1.getY(),
+                                                 satellite2.getX(), satellite2.getY());
+        boolean closeEnough = satellite1.getRange() >= distance && satellite2.getRange() >= distance;
+        return visible && closeEnough;
+    }
+}
@@ -0,0 +1,158 @@
+package unsw.blackout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import unsw.utils.Angle;
+
+/**
+ * Devices, satellites and device files to be added to a simulation in one go by
+ * {@link BlackoutController#load}. Nothing is checked until then.
+ */
+public class EntityBatch {
+    private List<SatelliteSpec> satellites = new ArrayList<>();
+    private List<DeviceSpec> devices = new ArrayList<>();
+    private List<FileSpec> files = new ArrayList<>();
+
+    public void addSatellite(String satelliteId, String type, double height, Angle position) {
+        satellites.add(new SatelliteSpec(satelliteId, type, height, position));
+    }
+
+    public void addDevice(String deviceId, String type, Angle position, boolean isMoving) {
+        devices.add(new DeviceSpec(deviceId, type, position, isMoving));
+    }
+
+    /**
+     * Adds a file to a device, either one in this batch or one already in the simulation.
+     */
+    public void addFile(String deviceId, String filename, String content) {
+        files.add(new FileSpec(deviceId, filename, content));
+    }
+
+    public int getNumberOfSatellites() {
+        return satellites.size();
+    }
+
+    public int getNumberOfDevices() {
+        return devices.size();
+    }
+
+    public int getNumberOfFiles() {
+        return files.size();
+    }
+
+    /**
+     * The ID of every satellite and then every device, in the order they were added.
+     */
+    public List<String> listIds() {
+        List<String> ids = new ArrayList<>(satellites.size() + devices.size());
+        for (SatelliteSpec satellite : satellites) ids.add(satellite.id);
+        for (DeviceSpec device : devices) ids.add(device.id);
+        return ids;
+    }
+
+    /**
+     * Total size of every file in the batch.
+     */
+    public long getFileBytes() {
+        long total = 0;
+        for (FileSpec file : files) total += (file.content == null) ? 0 : file.content.length();
+        return total;
+    }
+
+    List<SatelliteSpec> satellites() {
+        return satellites;
+    }
+
+    List<DeviceSpec> devices() {
+        return devices;
+    }
+
+    List<FileSpec> files() {
+        return files;
+    }
+
+    static class SatelliteSpec {
+        private final String id;
+        private final String type;
+        private final double height;
+        private final Angle position;
+
+        SatelliteSpec(String id, String type, double height, Angle position) {
+            this.id = id;
+            this.type = type;
+            this.height = height;
+            this.position = position;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        double getHeight() {
+            return height;
+        }
+
+        Angle getPosition() {
+            return position;
+        }
+    }
+
+    static class DeviceSpec {
+        private final String id;
+        private final String type;
+        private final Angle position;
+        private final boolean isMoving;
+
+        DeviceSpec(String id, String type, Angle position, boolean isMoving) {
+            this.id = id;
+            this.type = type;
+            this.position = position;
+            this.isMoving = isMoving;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        Angle getPosition() {
+            return position;
+        }
+
+        boolean isMoving() {
+            return isMoving;
+        }
+    }
+
+    static class FileSpec {
+        private final String deviceId;
+        private final String filename;
+        private final String content;
+
+        FileSpec(String deviceId, String filename, String content) {
+            this.deviceId = deviceId;
+            this.filename = filename;
+            this.content = content;
+        }
+
+        String getDeviceId() {
+            return deviceId;
+        }
+
+        String getFilename() {
+            return filename;
+        }
+
+        String getContent() {
+            return content;
+        }
+    }
+}
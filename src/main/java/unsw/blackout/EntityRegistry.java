@@ -0,0 +1,134 @@
+package unsw.blackout;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import unsw.blackout.devices.Device;
+import unsw.blackout.satellites.Satellite;
+
+/**
+ * Keeps every device and satellite in the simulation indexed by its ID.
+ *
+ * Lookups, insertions and removals are all constant time, and iteration follows
+ * creation order so listings stay stable between calls. The positions of everything
+ * registered are kept together in one {@link PositionStore}.
+ */
+public class EntityRegistry {
+    public static final String DEVICE = "Device";
+    public static final String SATELLITE = "Satellite";
+
+    private Map<String, Device> devices = new LinkedHashMap<>();
+    private Map<String, Satellite> satellites = new LinkedHashMap<>();
+    private Map<String, String> kinds = new HashMap<>();
+    private PositionStore positions = new PositionStore();
+
+    // Cached copies of the values above for indexed iteration, dropped whenever anything changes
+    private Device[] deviceArray;
+    private Satellite[] satelliteArray;
+
+    public void addDevice(Device device) {
+        remove(device.getDeviceId());
+        device.attachPositions(positions);
+        devices.put(device.getDeviceId(), device);
+        deviceArray = null;
+        kinds.put(device.getDeviceId(), DEVICE);
+    }
+
+    public void addSatellite(Satellite satellite) {
+        remove(satellite.getSatelliteId());
+        satellite.attachPositions(positions);
+        satellites.put(satellite.getSatelliteId(), satellite);
+        satelliteArray = null;
+        kinds.put(satellite.getSatelliteId(), SATELLITE);
+    }
+
+    /**
+     * Makes room for the given number of entities about to be added.
+     */
+    public void reserve(int count) {
+        positions.reserve(count);
+    }
+
+    public Device removeDevice(String deviceId) {
+        Device device = devices.remove(deviceId);
+        if (device != null) {
+            kinds.remove(deviceId);
+            device.detachPositions();
+            deviceArray = null;
+        }
+        return device;
+    }
+
+    public Satellite removeSatellite(String satelliteId) {
+        Satellite satellite = satellites.remove(satelliteId);
+        if (satellite != null) {
+            kinds.remove(satelliteId);
+            satellite.detachPositions();
+            satelliteArray = null;
+        }
+        return satellite;
+    }
+
+    /*
+     * Removes whatever entity currently owns the ID, so an ID is never shared between
+     * a device and a satellite.
+     */
+    private void remove(String id) {
+        removeDevice(id);
+        removeSatellite(id);
+    }
+
+    public Device getDevice(String id) {
+        return devices.get(id);
+    }
+
+    public Satellite getSatellite(String id) {
+        return satellites.get(id);
+    }
+
+    /**
+     * Gets the general kind of an entity, either {@link #DEVICE} or {@link #SATELLITE},
+     * or null if no entity has the given ID.
+     */
+    public String getKind(String id) {
+        return kinds.get(id);
+    }
+
+    public boolean contains(String id) {
+        return kinds.containsKey(id);
+    }
+
+    public Collection<Device> devices() {
+        return devices.values();
+    }
+
+    public Collection<Satellite> satellites() {
+        return satellites.values();
+    }
+
+    /**
+     * Every device in creation order. The array is shared, so callers must not modify it.
+     */
+    public Device[] deviceArray() {
+        if (deviceArray == null) deviceArray = devices.values().toArray(new Device[0]);
+        return deviceArray;
+    }
+
+    /**
+     * Every satellite in creation order. The array is shared, so callers must not modify it.
+     */
+    public Satellite[] satelliteArray() {
+        if (satelliteArray == null) satelliteArray = satellites.values().toArray(new Satellite[0]);
+        return satelliteArray;
+    }
+
+    public int getNumberOfDevices() {
+        return devices.size();
+    }
+
+    public int getNumberOfSatellites() {
+        return satellites.size();
+    }
+}
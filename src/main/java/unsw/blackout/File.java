@@ -2,8 +2,14 @@ package unsw.blackout;
 
 import unsw.response.models.FileInfoResponse;
 
+/**
+ * A named file. Its contents are kept in a growable buffer so a file being received can
+ * have each new slice appended in place; a String is only built when the contents are read,
+ * and is kept until the buffer next changes.
+ */
 public class File {
     private String filename;
+    private StringBuilder buffer;
     private String contents;
     private int size;
     private boolean hasTransferCompleted = true;
@@ -31,14 +37,34 @@ public class File {
     }
 
     public String getContents() {
+        if (contents == null) contents = buffer.toString();
         return contents;
     }
 
     public void setContents(String contents) {
+        this.buffer = new StringBuilder(contents);
         this.contents = contents;
         this.setSize(contents.length());
     }
 
+    /**
+     * Appends the characters of text from start (inclusive) to end (exclusive). Unlike
+     * setContents this leaves the size alone, since a partial file already knows how big it
+     * will be.
+     */
+    public void append(CharSequence text, int start, int end) {
+        if (start >= end) return;
+        buffer.append(text, start, end);
+        contents = null;
+    }
+
+    /**
+     * Number of characters actually held, which is less than the size while still arriving.
+     */
+    public int getLength() {
+        return buffer.length();
+    }
+
     public int getSize() {
         return size;
     }
@@ -48,6 +74,13 @@ public class File {
     }
 
     public FileInfoResponse getInfoFile() {
-        return new FileInfoResponse(this.filename, this.contents, this.size, this.hasTransferCompleted);
+        return new FileInfoResponse(this.filename, this.getContents(), this.size, this.hasTransferCompleted);
+    }
+
+    /**
+     * Info without the contents, which never has to build them.
+     */
+    public FileInfoResponse getInfoFileWithoutData() {
+        return FileInfoResponse.withoutData(this.filename, this.getLength(), this.size, this.hasTransferCompleted);
     }
 }
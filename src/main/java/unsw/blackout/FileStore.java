@@ -0,0 +1,52 @@
+package unsw.blackout;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The files held by one entity, indexed by filename.
+ *
+ * The number of files and the total of their sizes are kept up to date as files come and
+ * go, so storage checks never have to add anything up. A file being received counts at its
+ * full size from the moment it starts arriving.
+ */
+public class FileStore {
+    private Map<String, File> files = new LinkedHashMap<>();
+    private int totalSize = 0;
+
+    /**
+     * Adds a file, replacing any file that already has the same name.
+     */
+    public void add(File file) {
+        File replaced = files.put(file.getFilename(), file);
+        if (replaced != null) totalSize = totalSize - replaced.getSize();
+        totalSize = totalSize + file.getSize();
+    }
+
+    public File remove(String filename) {
+        File removed = files.remove(filename);
+        if (removed != null) totalSize = totalSize - removed.getSize();
+        return removed;
+    }
+
+    public File get(String filename) {
+        return files.get(filename);
+    }
+
+    public boolean contains(String filename) {
+        return files.containsKey(filename);
+    }
+
+    public int getNumberOfFiles() {
+        return files.size();
+    }
+
+    public int getTotalSize() {
+        return totalSize;
+    }
+
+    public Collection<File> values() {
+        return files.values();
+    }
+}
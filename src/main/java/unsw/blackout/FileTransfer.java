@@ -0,0 +1,176 @@
+package unsw.blackout;
+
+import unsw.metrics.TransferEndedEvent;
+
+/**
+ * A file on its way from one entity to another.
+ *
+ * The receiver holds a partial copy of the file that fills up at the transfer's current
+ * rate. Nothing is copied minute by minute: progress is recorded only when the rate changes,
+ * the partial copy is brought up to date whenever someone looks at it, and the minute the
+ * transfer will complete on is known in advance.
+ */
+public class FileTransfer {
+    // Completion tick of a transfer with no bandwidth
+    public static final long NEVER = Long.MAX_VALUE;
+
+    private File source;
+    private File upload;
+    private String fromId;
+    private String toId;
+    private TransferScheduler scheduler;
+    private TransferTable sender;
+    private TransferTable receiver;
+    private long startTick;
+    private boolean finished = false;
+
+    // Progress is linear in time between rate changes: bytesAtRateChange were sent by the
+    // minute of the last change, and rate more have been sent every minute since
+    private int rate = 0;
+    private long rateChangeTick;
+    private long bytesAtRateChange = 0;
+    private long completionTick = NEVER;
+
+    // Number of bytes already copied into the upload
+    private int bytesAppended = 0;
+
+    FileTransfer(File source, String fromId, String toId, TransferTable sender, TransferTable receiver,
+                 TransferScheduler scheduler) {
+        this.source = source;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.sender = sender;
+        this.receiver = receiver;
+        this.scheduler = scheduler;
+        this.startTick = scheduler.getTick();
+        this.rateChangeTick = startTick;
+
+        // Preparing temporary file for upload
+        this.upload = new File(source.getFilename(), "");
+        upload.setSize(source.getSize());
+        upload.setTransferCompleted(false);
+    }
+
+    public File getSource() {
+        return source;
+    }
+
+    public File getUpload() {
+        return upload;
+    }
+
+    public String getFromId() {
+        return fromId;
+    }
+
+    public String getToId() {
+        return toId;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public long getCompletionTick() {
+        return completionTick;
+    }
+
+    /**
+     * Whether the transfer has stopped, either because it completed or was cancelled.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /*
+     * Joins both ends' tables, which changes the share of every other transfer through them.
+     */
+    void begin() {
+        scheduler.transferStarted();
+        sender.addOutgoing(this);
+        receiver.addIncoming(this);
+        sender.rebalance();
+        receiver.rebalance();
+    }
+
+    /*
+     * Moves at whichever end gives the smaller share. Called whenever either end gains or loses
+     * a transfer; the new rate applies from the next minute on.
+     */
+    void updateRate() {
+        int newRate = Math.min(sender.getOutgoingShare(), receiver.getIncomingShare());
+        if (newRate == rate) return;
+
+        long now = scheduler.getTick();
+        bytesAtRateChange = this.bytesSentBy(now);
+        rateChangeTick = now;
+        scheduler.rateChanged(rate, newRate);
+        rate = newRate;
+
+        if (rate <= 0) {
+            completionTick = NEVER;
+            return;
+        }
+        long remaining = source.getSize() - bytesAtRateChange;
+        // Even an empty file takes a minute to arrive
+        completionTick = Math.max(startTick + 1, now + (remaining + rate - 1) / rate);
+        scheduler.scheduleCompletion(this);
+    }
+
+    private long bytesSentBy(long tick) {
+        return Math.min(source.getSize(), this.bytesAtRate(tick));
+    }
+
+    /*
+     * What would have been sent by the given minute if the file never ran out.
+     */
+    private long bytesAtRate(long tick) {
+        return bytesAtRateChange + (tick - rateChangeTick) * rate;
+    }
+
+    /*
+     * Called by the scheduler on the completion tick.
+     */
+    void complete() {
+        this.settle();
+        upload.append(source.getContents(), bytesAppended, source.getSize());
+        bytesAppended = source.getSize();
+        upload.setTransferCompleted(true);
+        this.detach(source.getSize(), true);
+    }
+
+    /**
+     * Stops the transfer where it is. The partial upload stays as it was last brought up to date.
+     */
+    public void cancel() {
+        if (finished) return;
+        this.settle();
+        this.detach(this.bytesSentBy(scheduler.getTick()), false);
+    }
+
+    private void detach(long bytesSent, boolean completed) {
+        long now = scheduler.getTick();
+        scheduler.transferStopped(rate, bytesSent - this.bytesAtRate(now));
+        new TransferEndedEvent().record(source.getFilename(), fromId, toId, source.getSize(), bytesSent, startTick,
+                                        now, completed);
+        finished = true;
+        sender.remove(this);
+        receiver.remove(this);
+        sender.rebalance();
+        receiver.rebalance();
+    }
+
+    /**
+     * Brings the partial upload up to date with the current minute, appending only the bytes
+     * that have arrived since it was last brought up to date.
+     */
+    public void settle() {
+        if (finished) return;
+
+        int sent = (int) this.bytesSentBy(scheduler.getTick());
+        if (sent > bytesAppended) {
+            upload.append(source.getContents(), bytesAppended, sent);
+            bytesAppended = sent;
+        }
+    }
+}
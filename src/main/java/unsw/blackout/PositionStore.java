@@ -0,0 +1,140 @@
+package unsw.blackout;
+
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.util.Arrays;
+
+/**
+ * Stores the positions of many entities in parallel primitive arrays.
+ *
+ * Each entity owns one slot holding its angle (radians), height and the matching
+ * euclidean coordinates. Coordinates are recomputed once whenever the angle or height
+ * changes, so range checks between any number of pairs never need to call cos or sin,
+ * and moving an entity never allocates.
+ */
+public class PositionStore {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private double[] angles;
+    private double[] heights;
+    private double[] xs;
+    private double[] ys;
+    private int size = 0;
+
+    // Slots given back by removed entities, reused before the arrays grow
+    private int[] freeSlots = new int[0];
+    private int numberOfFreeSlots = 0;
+
+    public PositionStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PositionStore(int capacity) {
+        angles = new double[capacity];
+        heights = new double[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+    }
+
+    /**
+     * Reserves a slot for a new entity and returns its index.
+     */
+    public int allocate(double radians, double height) {
+        int slot;
+        if (numberOfFreeSlots > 0) {
+            slot = freeSlots[--numberOfFreeSlots];
+        } else {
+            if (size == angles.length) grow();
+            slot = size++;
+        }
+        heights[slot] = height;
+        setAngle(slot, radians);
+        return slot;
+    }
+
+    /**
+     * Makes room for the given number of new slots at once, rather than growing as they are allocated.
+     */
+    public void reserve(int count) {
+        int needed = size + Math.max(0, count - numberOfFreeSlots);
+        if (needed > angles.length) resize(needed);
+    }
+
+    /**
+     * Gives a slot back so it can be reused by a later entity.
+     */
+    public void release(int slot) {
+        if (numberOfFreeSlots == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, Math.max(DEFAULT_CAPACITY, freeSlots.length * 2));
+        }
+        freeSlots[numberOfFreeSlots++] = slot;
+    }
+
+    public double getAngle(int slot) {
+        return angles[slot];
+    }
+
+    public void setAngle(int slot, double radians) {
+        angles[slot] = radians;
+        updateCoordinates(slot);
+    }
+
+    public double getHeight(int slot) {
+        return heights[slot];
+    }
+
+    public void setHeight(int slot, double height) {
+        heights[slot] = height;
+        updateCoordinates(slot);
+    }
+
+    public double getX(int slot) {
+        return xs[slot];
+    }
+
+    public double getY(int slot) {
+        return ys[slot];
+    }
+
+    /**
+     * Distance between two points given by their stored coordinates. Gives exactly what
+     * {@link unsw.utils.MathsHelper#getDistance} gives for the same angles and heights.
+     */
+    public static double distance(double x1, double y1, double x2, double y2) {
+        return Math.sqrt((x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2));
+    }
+
+    /**
+     * Whether the line between two points given by their stored coordinates stays clear of
+     * Jupiter. Gives exactly what {@link unsw.utils.MathsHelper#isVisible} gives for the same angles and
+     * heights; the reasoning behind the sums is written out there.
+     */
+    public static boolean isVisible(double ax, double ay, double bx, double by) {
+        double a = (bx - ax) * (bx - ax) + (by - ay) * (by - ay);
+        double b = 2 * (ax * (bx - ax) + ay * (by - ay));
+        double det = RADIUS_OF_JUPITER * RADIUS_OF_JUPITER * (a) - (ax * by - bx * ay) * (ax * by - bx * ay);
+        if (det <= 0) return true;
+
+        double sqrtDet = Math.sqrt(det);
+        double tPos = (-b + sqrtDet) / (2 * a);
+        double tNeg = (-b - sqrtDet) / (2 * a);
+        // Touching Jupiter is fine, only going through it is not
+        return !((0 <= tPos && tPos <= 1) || (0 <= tNeg && tNeg <= 1));
+    }
+
+    private void updateCoordinates(int slot) {
+        xs[slot] = Math.cos(angles[slot]) * heights[slot];
+        ys[slot] = Math.sin(angles[slot]) * heights[slot];
+    }
+
+    private void grow() {
+        resize(Math.max(DEFAULT_CAPACITY, angles.length * 2));
+    }
+
+    private void resize(int capacity) {
+        angles = Arrays.copyOf(angles, capacity);
+        heights = Arrays.copyOf(heights, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+    }
+}
@@ -0,0 +1,134 @@
+package unsw.blackout;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import unsw.blackout.devices.Device;
+import unsw.blackout.satellites.Satellite;
+
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+/**
+ * An angular index over every satellite and device, sorted by orbital angle.
+ *
+ * Two entities can only see each other if neither is below the other's horizon, and can
+ * only talk if they are within range, so both limit how far apart their angles can be.
+ * Range queries use those limits to binary search a window of the sorted angle ring
+ * instead of testing every entity. The index is a snapshot: it must be rebuilt whenever
+ * anything is created, removed or moved.
+ */
+public class SpatialIndex {
+    private static final double FULL_CIRCLE = 2 * Math.PI;
+    // Extra angle added to every window so rounding never drops a borderline entity
+    private static final double SLACK = 1e-6;
+
+    private Satellite[] satellites;
+    private double[] satelliteAngles;
+    private Device[] devices;
+    private double[] deviceAngles;
+    private double minSatelliteHeight = Double.POSITIVE_INFINITY;
+    private double maxSatelliteHeight = RADIUS_OF_JUPITER;
+
+    public SpatialIndex(Collection<Satellite> satellites, Collection<Device> devices) {
+        this.satellites = satellites.toArray(new Satellite[0]);
+        Arrays.sort(this.satellites, Comparator.comparingDouble(Satellite::getPositionRadians));
+        this.satelliteAngles = new double[this.satellites.length];
+        for (int i = 0; i < this.satellites.length; i++) {
+            satelliteAngles[i] = this.satellites[i].getPositionRadians();
+            minSatelliteHeight = Math.min(minSatelliteHeight, this.satellites[i].getHeight());
+            maxSatelliteHeight = Math.max(maxSatelliteHeight, this.satellites[i].getHeight());
+        }
+
+        this.devices = devices.toArray(new Device[0]);
+        Arrays.sort(this.devices, Comparator.comparingDouble(d -> normalise(d.getPositionRadians())));
+        this.deviceAngles = new double[this.devices.length];
+        for (int i = 0; i < this.devices.length; i++) {
+            deviceAngles[i] = normalise(this.devices[i].getPositionRadians());
+        }
+    }
+
+    /**
+     * Adds every satellite that could possibly be in range of an entity at the given
+     * angle (radians) and height with the given range. May include false positives, but
+     * never leaves out a satellite that is actually in range.
+     */
+    public void satellitesNear(double angle, double height, double range, List<Satellite> out) {
+        double window = maxSeparation(height, range, minSatelliteHeight, maxSatelliteHeight);
+        collect(satellites, satelliteAngles, normalise(angle), window, out);
+    }
+
+    /**
+     * Adds every device that could possibly be in range of an entity at the given
+     * angle (radians) and height with the given range.
+     */
+    public void devicesNear(double angle, double height, double range, List<Device> out) {
+        double window = maxSeparation(height, range, RADIUS_OF_JUPITER, RADIUS_OF_JUPITER);
+        collect(devices, deviceAngles, normalise(angle), window, out);
+    }
+
+    /*
+     * Largest angular separation at which an entity at the given height could still see and
+     * reach something between minHeight and maxHeight. Returns PI when nothing can be ruled out.
+     */
+    private static double maxSeparation(double height, double range, double minHeight, double maxHeight) {
+        double limit = Math.PI;
+
+        // Line of sight: each end can see at most acos(R / h) past the point directly below it
+        if (height >= RADIUS_OF_JUPITER && minHeight >= RADIUS_OF_JUPITER) {
+            limit = Math.acos(RADIUS_OF_JUPITER / height) + Math.acos(RADIUS_OF_JUPITER / maxHeight);
+        }
+
+        // Range: the chord between the two is at least 2 * sqrt(h1 * h2) * sin(separation / 2)
+        double ratio = range / (2 * Math.sqrt(height * minHeight));
+        if (ratio < 1) limit = Math.min(limit, 2 * Math.asin(ratio));
+
+        return limit + SLACK;
+    }
+
+    private static <T> void collect(T[] entities, double[] angles, double centre, double window, List<T> out) {
+        if (window >= Math.PI) {
+            out.addAll(Arrays.asList(entities));
+            return;
+        }
+
+        double low = centre - window;
+        double high = centre + window;
+        if (low < 0) {
+            addBetween(entities, angles, low + FULL_CIRCLE, FULL_CIRCLE, out);
+            addBetween(entities, angles, 0, high, out);
+        } else if (high >= FULL_CIRCLE) {
+            addBetween(entities, angles, low, FULL_CIRCLE, out);
+            addBetween(entities, angles, 0, high - FULL_CIRCLE, out);
+        } else {
+            addBetween(entities, angles, low, high, out);
+        }
+    }
+
+    /*
+     * Adds every entity whose angle lies within [low, high].
+     */
+    private static <T> void addBetween(T[] entities, double[] angles, double low, double high, List<T> out) {
+        for (int i = firstAtLeast(angles, low); i < angles.length && angles[i] <= high; i++) {
+            out.add(entities[i]);
+        }
+    }
+
+    private static int firstAtLeast(double[] angles, double value) {
+        int low = 0;
+        int high = angles.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (angles[mid] < value) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static double normalise(double radians) {
+        double result = radians % FULL_CIRCLE;
+        if (result < 0) result += FULL_CIRCLE;
+        return result;
+    }
+}
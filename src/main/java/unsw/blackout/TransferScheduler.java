@@ -0,0 +1,139 @@
+package unsw.blackout;
+
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the simulation clock and runs whatever is due as it moves forward.
+ *
+ * Each transfer registers the minute it completes on, so moving the clock only costs the
+ * events that are actually due rather than a visit to every entity. Events run in the order
+ * of the minute they are due on, with the clock showing that minute while they run, and
+ * events due on the same minute run in the order they were scheduled.
+ *
+ * It also keeps count of the bytes moved by every transfer together, in the same way each
+ * transfer keeps its own progress: the total only needs bringing up to date when a rate changes.
+ */
+public class TransferScheduler {
+    private long tick;
+    private long nextSequence = 0;
+    private PriorityQueue<Event> events = new PriorityQueue<>();
+
+    private int activeTransfers = 0;
+    // Every transfer together had moved bytesMoved by movedTick, and movedRate more every minute since
+    private long bytesMoved = 0;
+    private long movedRate = 0;
+    private long movedTick;
+
+    public TransferScheduler() {
+        this(0);
+    }
+
+    /*
+     * A clock that starts part way through, for a simulation being restored.
+     */
+    TransferScheduler(long tick) {
+        this.tick = tick;
+        this.movedTick = tick;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Starts sending a file between the entities that own the given tables. The bandwidth of
+     * both ends is shared again between everything they are now sending or receiving.
+     */
+    public FileTransfer start(File source, String fromId, String toId, TransferTable sender,
+                              TransferTable receiver) {
+        FileTransfer transfer = new FileTransfer(source, fromId, toId, sender, receiver, this);
+        transfer.begin();
+        return transfer;
+    }
+
+    /**
+     * Number of transfers under way.
+     */
+    public int getActiveTransfers() {
+        return activeTransfers;
+    }
+
+    /**
+     * Bytes moved by every transfer since the simulation started, up to the current minute.
+     */
+    public long getBytesMoved() {
+        return bytesMoved + movedRate * (tick - movedTick);
+    }
+
+    void transferStarted() {
+        activeTransfers++;
+    }
+
+    /*
+     * Called as a transfer's rate changes, with the new rate applying from the next minute on.
+     */
+    void rateChanged(int oldRate, int newRate) {
+        this.catchUp();
+        movedRate += newRate - oldRate;
+    }
+
+    /*
+     * Called as a transfer finishes. A transfer's last minute can move less than its rate, so
+     * the correction is what it actually moved less what its rate alone would have.
+     */
+    void transferStopped(int rate, long correction) {
+        this.catchUp();
+        movedRate -= rate;
+        bytesMoved += correction;
+        activeTransfers--;
+    }
+
+    private void catchUp() {
+        bytesMoved += movedRate * (tick - movedTick);
+        movedTick = tick;
+    }
+
+    /*
+     * Called whenever a transfer's completion tick changes. Any event left over from an earlier
+     * prediction is ignored when it comes due.
+     */
+    void scheduleCompletion(FileTransfer transfer) {
+        long dueTick = transfer.getCompletionTick();
+        if (dueTick == FileTransfer.NEVER) return;
+        events.add(new Event(dueTick, nextSequence++, () -> {
+            if (transfer.isFinished() || transfer.getCompletionTick() != dueTick) return;
+            transfer.complete();
+        }));
+    }
+
+    /**
+     * Moves the clock forward and runs every event that has become due, oldest first.
+     */
+    public void advance(int minutes) {
+        long target = tick + minutes;
+        while (!events.isEmpty() && events.peek().dueTick <= target) {
+            Event event = events.poll();
+            tick = Math.max(tick, event.dueTick);
+            event.action.run();
+        }
+        tick = target;
+    }
+
+    private static class Event implements Comparable<Event> {
+        private final long dueTick;
+        private final long sequence;
+        private final Runnable action;
+
+        Event(long dueTick, long sequence, Runnable action) {
+            this.dueTick = dueTick;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            if (dueTick != other.dueTick) return Long.compare(dueTick, other.dueTick);
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package unsw.blackout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+/**
+ * Every transfer one entity is currently sending or receiving.
+ *
+ * An entity's send and receive rates are budgets shared evenly between all of its transfers
+ * in that direction, so a transfer moves at whichever of its two ends gives it the smaller
+ * share. A new transfer is only admitted while every transfer would still get at least a
+ * byte a minute, except that an entity with no bandwidth at all, such as a relay satellite,
+ * still takes one transfer each way as it always has. That transfer never moves.
+ */
+public class TransferTable {
+    // Rate of an entity whose bandwidth is not limited
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private IntSupplier sendRate;
+    private IntSupplier receiveRate;
+    private List<FileTransfer> incoming = new ArrayList<>();
+    private List<FileTransfer> outgoing = new ArrayList<>();
+
+    /**
+     * A table with no limit on bandwidth in either direction.
+     */
+    public TransferTable() {
+        this(() -> UNLIMITED, () -> UNLIMITED);
+    }
+
+    /**
+     * A table whose rates are looked up each time they are needed, so they can come from
+     * methods that subclasses override.
+     */
+    public TransferTable(IntSupplier sendRate, IntSupplier receiveRate) {
+        this.sendRate = sendRate;
+        this.receiveRate = receiveRate;
+    }
+
+    public boolean canSend() {
+        return outgoing.size() < Math.max(1, sendRate.getAsInt());
+    }
+
+    public boolean canReceive() {
+        return incoming.size() < Math.max(1, receiveRate.getAsInt());
+    }
+
+    public boolean isSending() {
+        return !outgoing.isEmpty();
+    }
+
+    public boolean isReceiving() {
+        return !incoming.isEmpty();
+    }
+
+    public List<FileTransfer> getIncoming() {
+        return incoming;
+    }
+
+    int getOutgoingShare() {
+        return share(sendRate.getAsInt(), outgoing.size());
+    }
+
+    int getIncomingShare() {
+        return share(receiveRate.getAsInt(), incoming.size());
+    }
+
+    private static int share(int rate, int numberOfTransfers) {
+        if (rate == UNLIMITED || numberOfTransfers == 0) return rate;
+        return rate / numberOfTransfers;
+    }
+
+    void addIncoming(FileTransfer transfer) {
+        incoming.add(transfer);
+    }
+
+    void addOutgoing(FileTransfer transfer) {
+        outgoing.add(transfer);
+    }
+
+    void remove(FileTransfer transfer) {
+        incoming.remove(transfer);
+        outgoing.remove(transfer);
+    }
+
+    /*
+     * Recomputes the rate of every transfer through this entity after one has started or ended.
+     */
+    void rebalance() {
+        for (FileTransfer transfer : incoming) transfer.updateRate();
+        for (FileTransfer transfer : outgoing) transfer.updateRate();
+    }
+
+    /**
+     * Brings every file this entity is receiving up to date with the current minute.
+     */
+    public void settleIncoming() {
+        for (FileTransfer transfer : incoming) transfer.settle();
+    }
+}
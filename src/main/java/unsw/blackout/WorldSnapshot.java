@@ -0,0 +1,63 @@
+package unsw.blackout;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import unsw.response.models.EntityInfoResponse;
+
+/**
+ * Everything a client can read about a simulation, frozen at one instant.
+ *
+ * A snapshot is never modified once taken, so any number of threads can read it while the
+ * simulation it came from carries on changing.
+ */
+public final class WorldSnapshot {
+    private final long tick;
+    private final long version;
+    private final List<String> satelliteIds;
+    private final List<String> deviceIds;
+    private final Map<String, EntityInfoResponse> entities;
+    private final ConnectivitySnapshot connectivity;
+
+    WorldSnapshot(long tick, long version, List<String> satelliteIds, List<String> deviceIds,
+                  Map<String, EntityInfoResponse> entities, ConnectivitySnapshot connectivity) {
+        this.tick = tick;
+        this.version = version;
+        this.satelliteIds = Collections.unmodifiableList(satelliteIds);
+        this.deviceIds = Collections.unmodifiableList(deviceIds);
+        this.entities = Collections.unmodifiableMap(entities);
+        this.connectivity = connectivity;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * The simulation's {@link BlackoutController#getVersion version} when this was taken.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<String> listSatelliteIds() {
+        return satelliteIds;
+    }
+
+    public List<String> listDeviceIds() {
+        return deviceIds;
+    }
+
+    public EntityInfoResponse getInfo(String id) {
+        return entities.get(id);
+    }
+
+    public List<String> communicableEntitiesInRange(String id) {
+        return connectivity.communicableEntitiesInRange(id);
+    }
+
+    public boolean isInRange(String id1, String id2) {
+        return connectivity.isInRange(id1, id2);
+    }
+}
@@ -1,6 +1,10 @@
 package unsw.blackout.devices;
 
 import unsw.blackout.File;
+import unsw.blackout.FileStore;
+import unsw.blackout.FileTransfer;
+import unsw.blackout.TransferTable;
+import unsw.blackout.PositionStore;
 import unsw.response.models.EntityInfoResponse;
 import unsw.response.models.FileInfoResponse;
 
@@ -8,7 +12,6 @@ import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import unsw.utils.Angle;
@@ -17,23 +20,23 @@ public abstract class Device {
     // Variables for key pieces of information
     private String type;
     private String deviceId;
-    private Angle position;
     private double range;
-    private List<File> files;
+
+    // Position lives in a slot of a shared store; until added to a controller it has a store of its own
+    private PositionStore positions = new PositionStore(1);
+    private int slot = positions.allocate(0, RADIUS_OF_JUPITER);
+
+    private FileStore files = new FileStore();
 
     // Variables for file transfer options
-    private File queuedFile;
-    private int currIdx;
-    private int transferSpeed = 0;
-    private boolean isSending = false;
-    private String transferFromId = "";
+    // Devices have unlimited bandwidth
+    private TransferTable transfers = new TransferTable();
 
     public Device(String type, String deviceId, Angle position, int range) {
         setType(type);
         setDeviceId(deviceId);
         setPosition(position);
         setRange(range);
-        files = new ArrayList<File>();
     }
 
     public double getRange() {
@@ -61,11 +64,41 @@ public abstract class Device {
     }
 
     public Angle getPosition() {
-        return position;
+        return Angle.fromRadians(positions.getAngle(slot));
     }
 
     public void setPosition(Angle position) {
-        this.position = position;
+        positions.setAngle(slot, position.toRadians());
+    }
+
+    public double getPositionRadians() {
+        return positions.getAngle(slot);
+    }
+
+    // Euclidean coordinates of the current position, kept up to date by the store
+    public double getX() {
+        return positions.getX(slot);
+    }
+
+    public double getY() {
+        return positions.getY(slot);
+    }
+
+    /**
+     * Moves this device's position into a slot of the given store, releasing its old slot.
+     */
+    public void attachPositions(PositionStore store) {
+        int newSlot = store.allocate(positions.getAngle(slot), positions.getHeight(slot));
+        positions.release(slot);
+        positions = store;
+        slot = newSlot;
+    }
+
+    /**
+     * Moves this device's position back into a store of its own.
+     */
+    public void detachPositions() {
+        this.attachPositions(new PositionStore(1));
     }
 
     public void addFile(File file) {
@@ -73,111 +106,82 @@ public abstract class Device {
     }
 
     public EntityInfoResponse getInfoDevice() {
+        return this.getInfoDevice(true, true);
+    }
+
+    /**
+     * Info that leaves out the files, or just their contents, so they are not built for nothing.
+     */
+    public EntityInfoResponse getInfoDevice(boolean withFiles, boolean withFileData) {
         // Create HashMap and add each file individually with filename as key
         Map<String, FileInfoResponse> fileInfos = new HashMap<>();
-        for (File file : files) {
-            fileInfos.put(file.getFilename(), file.getInfoFile());
+        if (withFiles) {
+            this.settleTransfer();
+            for (File file : files.values()) {
+                fileInfos.put(file.getFilename(), withFileData ? file.getInfoFile() : file.getInfoFileWithoutData());
+            }
         }
-        return new EntityInfoResponse(this.deviceId, this.position, RADIUS_OF_JUPITER, this.type, fileInfos);
+        return new EntityInfoResponse(this.deviceId, this.getPosition(), RADIUS_OF_JUPITER, this.type, fileInfos);
     }
 
     public boolean containsFile(String filename) {
-        for (File file : files) {
-            if (file.getFilename().equals(filename)) return true;
-        }
-        return false;
+        return files.contains(filename);
+    }
+
+    public int getTotalSizeOfFiles() {
+        return files.getTotalSize();
     }
 
     public File getFileFromFilename(String filename) {
-        for (File file : files) {
-            if (file.getFilename().equals(filename)) return file;
-        }
-        return null;
+        this.settleTransfer();
+        return files.get(filename);
     }
 
     /*
      * Queue file for upload:
-     *  > Sets the device in transfer mode
-     *  > Keeps track of the amount of bytes sent
-     *  > Inserts partially completed file to main files
+     *  > Inserts the partially completed file to main files, which the transfer fills in
     */
-    public void queueFile(File file, int transSpeed, String fromId) {
-        // Initialising local fields
-        transferFromId = fromId;
-        queuedFile = file;
-        transferSpeed = transSpeed;
-
-        // Preparing temporary file for upload
-        File upload = new File(file.getFilename(), "");
-        upload.setSize(file.getSize());
-        upload.setTransferCompleted(false);
-        currIdx = 0;
-
-        files.add(upload);
-    }
-
-    public void updateFileUpload() {
-        // tempIdx used to update the current amount of sent bytes at the end
-        int tempIdx = 0;
-        // Initial checking
-        if (queuedFile == null) return;
-        File mainFile = null;
-
-        // Getting file
-        for (File file : files) {
-            if (file.getFilename().equals(queuedFile.getFilename())) mainFile = file;
-        }
-
-        // Adding in the specified amount of byte (transfer speed)
-        for (int i = 0; i < transferSpeed; i++) {
-            if (currIdx + i >= queuedFile.getSize() - 1) {
-                // If file is sent entirely, complete the file and reset local fields
-                mainFile.setContents(mainFile.getContents() + queuedFile.getContents().charAt(currIdx + i));
-                mainFile.setTransferCompleted(true);
-                queuedFile = null;
-                currIdx = 0;
-                return;
-            }
-            mainFile.setContents(mainFile.getContents() + queuedFile.getContents().charAt(currIdx + i));
-            tempIdx++;
-            mainFile.setSize(queuedFile.getSize());
-        }
-        currIdx = currIdx + tempIdx;
+    public void queueFile(FileTransfer transfer) {
+        files.add(transfer.getUpload());
     }
 
-    // Check to see if the Device is currently receiving a file
-    public boolean isTransferring() {
-        return (queuedFile != null);
+    /*
+     * Brings the files being received up to date before anything reads the files.
+     */
+    private void settleTransfer() {
+        transfers.settleIncoming();
     }
 
-    // Update whether or not this device is sending a file
-    public void toggleSending(boolean status) {
-        isSending = status;
+    public TransferTable getTransfers() {
+        return transfers;
     }
 
-    public boolean isSending() {
-        return isSending;
+    // Check to see if the Device is currently receiving a file
+    public boolean isTransferring() {
+        return transfers.isReceiving();
     }
 
-    public String getTransferFromId() {
-        return transferFromId;
+    // Check to see if the Device is currently sending a file
+    public boolean isSending() {
+        return transfers.isSending();
     }
 
     // Force transfer: Meant for task 2c
     public void forceAddTransfer() {
-        files.add(queuedFile);
+        // The finished file takes the place of the partial one
+        for (FileTransfer transfer : transfers.getIncoming()) files.add(transfer.getSource());
         this.forceRemoveTransfer();
     }
 
     // Force transfer: Meant for task 2c
     public void forceRemoveTransfer() {
-        for (int i = 0; i < files.size(); i++) {
-            if (files.get(i).getSize() != files.get(i).getContents().length()) {
-                files.remove(i);
+        this.settleTransfer();
+        for (File file : files.values()) {
+            if (file.getSize() != file.getLength()) {
+                files.remove(file.getFilename());
                 break;
             }
         }
-        currIdx = 0;
-        queuedFile = null;
+        for (FileTransfer transfer : new ArrayList<>(transfers.getIncoming())) transfer.cancel();
     }
 }
@@ -3,22 +3,102 @@ package unsw.blackout.satellites;
 import unsw.utils.Angle;
 
 public class RelaySatellite extends Satellite {
+    // Relays drift back into, and then sway within, the band between 140 and 190 degrees.
+    // Positions within rounding error of either edge count as inside the band, so that stepping
+    // minute by minute and jumping ahead agree on exactly when a relay turns around.
+    private static final double EDGE_TOLERANCE = 1e-9;
+    private static final double BAND_LOW = Math.toRadians(140) - EDGE_TOLERANCE;
+    private static final double BAND_HIGH = Math.toRadians(190) + EDGE_TOLERANCE;
+    private static final double BAND_RETURN = Math.toRadians(345);
+
     private boolean clockwise = true;
 
     public RelaySatellite(String satelliteId, double height, Angle position) {
         super("RelaySatellite", satelliteId, 1500, true, true, true, 300000, height, position);
     }
 
+    @Override
+    public boolean isClockwise() {
+        return clockwise;
+    }
+
+    @Override
+    public void restoreClockwise(boolean clockwise) {
+        this.clockwise = clockwise;
+    }
+
     @Override
     public void updatePosition() {
-        Angle toAdd = Angle.fromRadians(this.getLinearSpeed() / this.getHeight());
+        double position = this.getPositionRadians();
 
         // Identifying which direction to travel
-        if (this.getPosition().toDegrees() <= 345 && this.getPosition().toDegrees() > 190) clockwise = true;
-        else if (this.getPosition().toDegrees() > 345 || this.getPosition().toDegrees() < 140) clockwise = false;
+        if (position <= BAND_RETURN && position > BAND_HIGH) clockwise = true;
+        else if (position > BAND_RETURN || position < BAND_LOW) clockwise = false;
+
+        if (clockwise) this.setPositionRadians(position - this.getAngularSpeed());
+        else this.setPositionRadians(position + this.getAngularSpeed());
+    }
+
+    /*
+     * Outside the band a relay drifts straight towards it, so those stretches are one jump.
+     * Inside the band every position it can reach is its current position plus a whole number
+     * of steps, and it bounces between the first of those below 140 degrees and the first
+     * above 190 degrees, so any number of minutes there is a triangle wave.
+     */
+    @Override
+    public void advancePosition(int minutes) {
+        double step = this.getAngularSpeed();
+        long remaining = minutes;
+        while (remaining > 0) {
+            double position = this.getPositionRadians();
+            if (position >= BAND_LOW && position <= BAND_HIGH) {
+                this.swayWithinBand(position, step, remaining);
+                return;
+            }
+
+            long moves;
+            if (position <= BAND_RETURN && position > BAND_HIGH) {
+                // Heading clockwise down to the top of the band
+                clockwise = true;
+                moves = (long) Math.ceil((position - BAND_HIGH) / step);
+            } else {
+                // Heading anticlockwise (through 0 degrees if needed) up to the bottom of the band
+                clockwise = false;
+                double target = (position < BAND_LOW) ? BAND_LOW : BAND_LOW + 2 * Math.PI;
+                moves = (long) Math.ceil((target - position) / step);
+            }
+            moves = Math.max(1, Math.min(moves, remaining));
+
+            if (clockwise) this.setPositionRadians(position - moves * step);
+            else this.setPositionRadians(position + moves * step);
+            remaining -= moves;
+        }
+    }
+
+    private void swayWithinBand(double start, double step, long minutes) {
+        // Steps to the turning points: the first position below the band and the first above it
+        long stepsDown = (long) Math.floor((start - BAND_LOW) / step) + 1;
+        long stepsUp = (long) Math.floor((BAND_HIGH - start) / step) + 1;
+        if (start - stepsDown * step < 0 || start + stepsUp * step > BAND_RETURN) {
+            // Steps so large they leave the band entirely, so the bounce isn't a simple wave
+            for (long i = 0; i < minutes; i++) this.updatePosition();
+            return;
+        }
+
+        // Unfold the bounce onto a loop: 0..width going up from the bottom, width..2 * width coming back down
+        long width = stepsDown + stepsUp;
+        long phase = clockwise ? width + stepsUp : stepsDown;
+        phase = (phase + minutes % (2 * width)) % (2 * width);
 
-        if (clockwise) this.setPosition(this.getPosition().subtract(toAdd));
-        else this.setPosition(this.getPosition().add(toAdd));
+        long offset;
+        if (phase > 0 && phase <= width) {
+            offset = phase - stepsDown;
+            clockwise = false;
+        } else {
+            offset = stepsUp - (phase == 0 ? 2 * width : phase) + width;
+            clockwise = true;
+        }
+        this.setPositionRadians(start + offset * step);
     }
 }
 
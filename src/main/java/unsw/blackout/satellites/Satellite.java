@@ -1,9 +1,12 @@
 package unsw.blackout.satellites;
 
 import unsw.blackout.File;
+import unsw.blackout.FileStore;
+import unsw.blackout.FileTransfer;
+import unsw.blackout.TransferTable;
+import unsw.blackout.PositionStore;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import unsw.blackout.devices.Device;
@@ -12,6 +15,8 @@ import unsw.response.models.FileInfoResponse;
 import unsw.utils.Angle;
 
 public abstract class Satellite {
+    private static final double FULL_CIRCLE = 2 * Math.PI;
+
     // Variables for key pieces of information
     private String type;
     private String satelliteId;
@@ -20,8 +25,10 @@ public abstract class Satellite {
     private boolean supportsHandheld;
     private boolean supportsLaptop;
     private boolean supportsDesktop;
-    private double height;
-    private Angle position;
+
+    // Position lives in a slot of a shared store; until added to a controller it has a store of its own
+    private PositionStore positions = new PositionStore(1);
+    private int slot = positions.allocate(0, 0);
 
     // Default restrictions for file transfers
     private int capacity = 80;
@@ -29,12 +36,8 @@ public abstract class Satellite {
     private int sendRate = 0;
 
     // Variables for file transfer options
-    private List<File> files = new ArrayList<File>();
-    private File queuedFile;
-    private int currIdx;
-    private int transferSpeed = 0;
-    private boolean isSending = false;
-    private String transferFromId = "";
+    private FileStore files = new FileStore();
+    private TransferTable transfers = new TransferTable(this::getSendRate, this::getReceiveRate);
 
     public Satellite(String type, String satelliteId, int linearSpeed, boolean supportsHandheld, boolean supportsLaptop,
                      boolean supportsDesktop, int range, double height, Angle position) {
@@ -99,25 +102,63 @@ public abstract class Satellite {
     }
 
     public double getHeight() {
-        return height;
+        return positions.getHeight(slot);
     }
 
     public void setHeight(double height) {
-        this.height = height;
+        positions.setHeight(slot, height);
     }
 
     public Angle getPosition() {
-        return position;
+        return Angle.fromRadians(positions.getAngle(slot));
     }
 
     public void setPosition(Angle position) {
+        setPositionRadians(position.toRadians());
+    }
+
+    public double getPositionRadians() {
+        return positions.getAngle(slot);
+    }
+
+    public void setPositionRadians(double radians) {
+        // We must make sure theta in between 0 and 2 pi.
+        double currPos = radians % FULL_CIRCLE;
+        if (currPos < 0) currPos = currPos + FULL_CIRCLE;
+        if (currPos >= FULL_CIRCLE) currPos = currPos - FULL_CIRCLE;
+
+        positions.setAngle(slot, currPos);
+    }
+
+    // Euclidean coordinates of the current position, kept up to date by the store
+    public double getX() {
+        return positions.getX(slot);
+    }
 
-        // We must make sure theta in between 0 and 360.
-        double currPos = position.toDegrees();
-        while (currPos >= 360) currPos = currPos - 360;
-        while (currPos < 0) currPos = currPos + 360;
+    public double getY() {
+        return positions.getY(slot);
+    }
+
+    /**
+     * Moves this satellite's position into a slot of the given store, releasing its old slot.
+     */
+    public void attachPositions(PositionStore store) {
+        int newSlot = store.allocate(positions.getAngle(slot), positions.getHeight(slot));
+        positions.release(slot);
+        positions = store;
+        slot = newSlot;
+    }
+
+    /**
+     * Moves this satellite's position back into a store of its own.
+     */
+    public void detachPositions() {
+        this.attachPositions(new PositionStore(1));
+    }
 
-        this.position = Angle.fromDegrees(currPos);
+    // Angle travelled each minute
+    protected double getAngularSpeed() {
+        return this.getLinearSpeed() / this.getHeight();
     }
 
     public boolean supportsDevice(Device device) {
@@ -130,25 +171,58 @@ public abstract class Satellite {
     }
 
     public EntityInfoResponse getInfoSatellite() {
+        return this.getInfoSatellite(true, true);
+    }
+
+    /**
+     * Info that leaves out the files, or just their contents, so they are not built for nothing.
+     */
+    public EntityInfoResponse getInfoSatellite(boolean withFiles, boolean withFileData) {
         // Create HashMap and add each file individually with filename as key
         Map<String, FileInfoResponse> fileInfos = new HashMap<>();
-        for (File file : files) {
-            fileInfos.put(file.getFilename(), file.getInfoFile());
+        if (withFiles) {
+            this.settleTransfer();
+            for (File file : files.values()) {
+                fileInfos.put(file.getFilename(), withFileData ? file.getInfoFile() : file.getInfoFileWithoutData());
+            }
         }
-        return new EntityInfoResponse(this.satelliteId, this.position, this.height, this.type, fileInfos);
+        return new EntityInfoResponse(this.satelliteId, this.getPosition(), this.getHeight(), this.type, fileInfos);
     }
 
     // Default position update
     public void updatePosition() {
-        Angle toAdd = Angle.fromRadians(this.getLinearSpeed() / this.getHeight());
-        this.setPosition(this.getPosition().subtract(toAdd));
+        this.setPositionRadians(this.getPositionRadians() - this.getAngularSpeed());
+    }
+
+    /**
+     * Moves the satellite to where the given number of calls to updatePosition would leave it,
+     * without stepping through every minute.
+     */
+    public void advancePosition(int minutes) {
+        this.setPositionRadians(this.getPositionRadians() - minutes * this.getAngularSpeed());
+    }
+
+    /**
+     * Whether the satellite is moving clockwise. Along with its position, this is all it needs
+     * to carry on from where it is.
+     */
+    public boolean isClockwise() {
+        return true;
+    }
+
+    /**
+     * Sets the direction of a satellite brought back from where it was saved. Satellites that
+     * only ever move one way ignore it.
+     */
+    public void restoreClockwise(boolean clockwise) {
+    }
+
+    public void addFile(File file) {
+        files.add(file);
     }
 
     public boolean containsFile(String filename) {
-        for (File file : files) {
-            if (file.getFilename().equals(filename)) return true;
-        }
-        return false;
+        return files.contains(filename);
     }
 
     public int getCapacity() {
@@ -164,91 +238,45 @@ public abstract class Satellite {
     }
 
     public File getFileFromFilename(String filename) {
-        for (File file : files) {
-            if (file.getFilename().equals(filename)) return file;
-        }
-        return null;
+        this.settleTransfer();
+        return files.get(filename);
     }
 
     /*
      * Queue file for upload:
-     *  > Sets the device in transfer mode
-     *  > Keeps track of the amount of bytes sent
-     *  > Inserts partially completed file to main files
+     *  > Inserts the partially completed file to main files, which the transfer fills in
     */
-    public void queueFile(File file, int transSpeed, String fromId) {
-        // Initialising local fields
-        transferFromId = fromId;
-        queuedFile = file;
-        transferSpeed = transSpeed;
-
-        // Preparing temporary file for upload
-        File upload = new File(file.getFilename(), "");
-        upload.setSize(file.getSize());
-        upload.setTransferCompleted(false);
-        currIdx = 0;
-
-        files.add(upload);
-    }
-
-    public void updateFileUpload() {
-        // tempIdx used to update the current amount of sent bytes at the end
-        int tempIdx = 0;
-         // Initial checking
-        if (queuedFile == null) return;
-        File mainFile = null;
-
-        // Getting file
-        for (File file : files) {
-            if (file.getFilename().equals(queuedFile.getFilename())) mainFile = file;
-        }
-
-        // Adding in the specified amount of byte (transfer speed)
-        for (int i = 0; i < transferSpeed; i++) {
-            if (currIdx + i >= queuedFile.getSize() - 1) {
-                 // If file is sent entirely, complete the file and reset local fields
-                mainFile.setContents(mainFile.getContents() + queuedFile.getContents().charAt(currIdx + i));
-                mainFile.setTransferCompleted(true);
-                queuedFile = null;
-                currIdx = 0;
-                return;
-            }
-            mainFile.setContents(mainFile.getContents() + queuedFile.getContents().charAt(currIdx + i));
-            tempIdx++;
-            mainFile.setSize(queuedFile.getSize());
-        }
-
-        currIdx = currIdx + tempIdx;
+    public void queueFile(FileTransfer transfer) {
+        files.add(transfer.getUpload());
     }
 
-    // Check to see if the Device is currently receiving a file
-    public boolean isTransferring() {
-        return (queuedFile != null);
+    /*
+     * Brings the files being received up to date before anything reads the files.
+     */
+    private void settleTransfer() {
+        transfers.settleIncoming();
     }
 
-      // Update whether or not this device is sending a file
-    public void toggleSending(boolean status) {
-        isSending = status;
+    public TransferTable getTransfers() {
+        return transfers;
     }
 
-    public boolean isSending() {
-        return isSending;
+    // Check to see if the Satellite is currently receiving a file
+    public boolean isTransferring() {
+        return transfers.isReceiving();
     }
 
-    public String getTransferFromId() {
-        return transferFromId;
+    // Check to see if the Satellite is currently sending a file
+    public boolean isSending() {
+        return transfers.isSending();
     }
 
     public int getNumberOfFiles() {
-        return files.size();
+        return files.getNumberOfFiles();
     }
 
     public int getTotalSizeOfFiles() {
-        int total = 0;
-        for (File file : files) {
-            total = total + file.getSize();
-        }
-        return total;
+        return files.getTotalSize();
     }
 
     public String canFit(File file) {
@@ -257,25 +285,26 @@ public abstract class Satellite {
 
     // Force transfer: Meant for task 2c
     public void transferOutOfRange() {
-        queuedFile = null;
+        for (FileTransfer transfer : new ArrayList<>(transfers.getIncoming())) transfer.cancel();
     }
 
     // Force transfer: Meant for task 2c
     public void forceAddTransfer() {
-        files.add(queuedFile);
+        // The finished file takes the place of the partial one
+        for (FileTransfer transfer : transfers.getIncoming()) files.add(transfer.getSource());
         this.forceRemoveTransfer();
     }
 
     // Force transfer: Meant for task 2c
     public void forceRemoveTransfer() {
-        for (int i = 0; i < files.size(); i++) {
-            System.out.println(files.get(i));
-            if (files.get(i).getSize() != files.get(i).getContents().length()) {
-                files.remove(i);
+        this.settleTransfer();
+        for (File file : files.values()) {
+            System.out.println(file);
+            if (file.getSize() != file.getLength()) {
+                files.remove(file.getFilename());
                 break;
             }
         }
-        currIdx = 0;
-        queuedFile = null;
+        for (FileTransfer transfer : new ArrayList<>(transfers.getIncoming())) transfer.cancel();
     }
 }
@@ -30,8 +30,7 @@ public class StandardSatellite extends Satellite {
 
     @Override
     public void updatePosition() {
-        Angle toAdd = Angle.fromRadians(this.getLinearSpeed() / this.getHeight());
-        this.setPosition(this.getPosition().subtract(toAdd));
+        this.setPositionRadians(this.getPositionRadians() - this.getAngularSpeed());
     }
 
     @Override
@@ -13,7 +13,7 @@ public class TeleportingSatellite extends Satellite {
         super("TeleportingSatellite", satelliteId, 1000, true, true, true, 200000, height, position);
 
         // Update the direction for upper hemisphere
-        if (this.getPosition().compareTo(Angle.fromDegrees(180)) == -1) clockwise = false;
+        if (this.getPositionRadians() < Math.PI) clockwise = false;
     }
 
     @Override
@@ -32,19 +32,71 @@ public class TeleportingSatellite extends Satellite {
     }
 
     @Override
-    public void updatePosition() {
-        Angle toAdd = Angle.fromRadians(this.getLinearSpeed() / this.getHeight());
+    public boolean isClockwise() {
+        return clockwise;
+    }
+
+    @Override
+    public void restoreClockwise(boolean clockwise) {
+        this.clockwise = clockwise;
+    }
 
-        if (clockwise) this.setPosition(this.getPosition().subtract(toAdd));
-        else this.setPosition(this.getPosition().add(toAdd));
+    @Override
+    public void updatePosition() {
+        if (clockwise) this.setPositionRadians(this.getPositionRadians() - this.getAngularSpeed());
+        else this.setPositionRadians(this.getPositionRadians() + this.getAngularSpeed());
 
-        if ((this.getPosition().compareTo(Angle.fromDegrees(180)) == 1  && !clockwise)
-         || (this.getPosition().compareTo(Angle.fromDegrees(180)) == -1) && clockwise) {
-            this.setPosition(Angle.fromDegrees(0));
+        double position = this.getPositionRadians();
+        if ((position > Math.PI && !clockwise) || (position < Math.PI && clockwise)) {
+            this.setPositionRadians(0);
             clockwise = clockwise ^ true; // COMP1521 moment
         }
     }
 
+    /*
+     * Between teleports the satellite moves in a straight line, and after the first teleport it
+     * always restarts from 0 degrees, so whole out-and-back cycles can be skipped entirely.
+     */
+    @Override
+    public void advancePosition(int minutes) {
+        double step = this.getAngularSpeed();
+        long remaining = minutes;
+        boolean teleported = false;
+        while (remaining > 0) {
+            double position = this.getPositionRadians();
+            long toTeleport = minutesUntilTeleport(position, clockwise, step);
+            if (toTeleport > remaining) {
+                if (clockwise) this.setPositionRadians(position - remaining * step);
+                else this.setPositionRadians(position + remaining * step);
+                return;
+            }
+
+            remaining -= toTeleport;
+            this.setPositionRadians(0);
+            clockwise = clockwise ^ true;
+
+            if (!teleported) {
+                // From 0 degrees every cycle is identical
+                teleported = true;
+                remaining %= minutesUntilTeleport(0, true, step) + minutesUntilTeleport(0, false, step);
+            }
+        }
+    }
+
+    /*
+     * Number of minutes until the satellite passes 180 degrees and teleports.
+     */
+    private static long minutesUntilTeleport(double position, boolean clockwise, double step) {
+        if (!clockwise) {
+            // Smallest number of steps that takes it strictly past 180 degrees
+            return Math.max(1, (long) Math.floor((Math.PI - position) / step) + 1);
+        }
+        // Moving clockwise it only passes 180 degrees on the way down from above, wrapping through 0 first
+        if (position <= Math.PI && position - step >= 0) return 1;
+        double start = (position <= Math.PI) ? position + 2 * Math.PI : position;
+        return Math.max(1, (long) Math.floor((start - Math.PI) / step) + 1);
+    }
+
     @Override
     public String canFit(File file) {
         if (this.getTotalSizeOfFiles() + file.getSize() > this.getCapacity()) return "Max Storage Reached";
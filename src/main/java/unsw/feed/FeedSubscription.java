@@ -0,0 +1,164 @@
+package unsw.feed;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import unsw.response.models.FileInfoResponse;
+
+/**
+ * One client listening to a {@link TickFeed}.
+ *
+ * A subscription can be narrowed to particular entity IDs and/or entity types; an empty filter
+ * matches everything. It remembers what it last told its client about each entity so that
+ * only changes are sent.
+ *
+ * A client that is not ready for another message skips ticks. Since changes are always worked
+ * out against what it was last sent, the next message it gets covers every tick it missed.
+ */
+public class FeedSubscription {
+    private Consumer<String> sink;
+    private BooleanSupplier ready;
+    private Runnable closer;
+    private Set<String> ids = new HashSet<>();
+    private Set<String> types = new HashSet<>();
+    private Map<String, EntityState> previous = new HashMap<>();
+
+    public FeedSubscription(Consumer<String> sink) {
+        this(sink, () -> true);
+    }
+
+    /**
+     * @param ready whether the client can take another message yet
+     */
+    public FeedSubscription(Consumer<String> sink, BooleanSupplier ready) {
+        this(sink, ready, () -> { });
+    }
+
+    /**
+     * @param ready whether the client can take another message yet
+     * @param closer disconnects the client once the feed has ended
+     */
+    public FeedSubscription(Consumer<String> sink, BooleanSupplier ready, Runnable closer) {
+        this.sink = sink;
+        this.ready = ready;
+        this.closer = closer;
+    }
+
+    /**
+     * Replaces the filter. Everything that matches it is sent in full on the next tick.
+     */
+    public synchronized void setFilter(Collection<String> ids, Collection<String> types) {
+        this.ids = new HashSet<>(ids);
+        this.types = new HashSet<>(types);
+        previous.clear();
+    }
+
+    public synchronized boolean matches(String id, String type) {
+        if (ids.isEmpty() && types.isEmpty()) return true;
+        return ids.contains(id) || types.contains(type);
+    }
+
+    boolean isReady() {
+        return ready.getAsBoolean();
+    }
+
+    void send(String message) {
+        sink.accept(message);
+    }
+
+    void close() {
+        closer.run();
+    }
+
+    synchronized EntityState getPrevious(String id) {
+        return previous.get(id);
+    }
+
+    synchronized void remember(String id, EntityState state) {
+        previous.put(id, state);
+    }
+
+    /*
+     * Forgets, and returns, every entity that was sent before but is not in the given IDs.
+     */
+    synchronized Set<String> forgetAllExcept(Set<String> ids) {
+        Set<String> gone = new HashSet<>(previous.keySet());
+        gone.removeAll(ids);
+        previous.keySet().removeAll(gone);
+        return gone;
+    }
+
+    /*
+     * Just enough of an entity to tell what changed. Its files are shared with the feed, which
+     * only replaces them when they change, so comparing them is usually just comparing references.
+     */
+    static class EntityState {
+        private final double position;
+        private final Map<String, FileProgress> files;
+        private final List<String> inRange;
+
+        EntityState(double position, Map<String, FileProgress> files, List<String> inRange) {
+            this.position = position;
+            this.files = files;
+            this.inRange = inRange;
+        }
+
+        double getPosition() {
+            return position;
+        }
+
+        Map<String, FileProgress> getFiles() {
+            return files;
+        }
+
+        List<String> getInRange() {
+            return inRange;
+        }
+    }
+
+    /*
+     * A file's contents only ever grow while it arrives, so its length stands in for the data itself.
+     */
+    static class FileProgress {
+        private final int progress;
+        private final int size;
+        private final boolean completed;
+
+        FileProgress(FileInfoResponse file) {
+            this.progress = file.getProgress();
+            this.size = file.getFileSize();
+            this.completed = file.hasTransferCompleted();
+        }
+
+        int getProgress() {
+            return progress;
+        }
+
+        int getSize() {
+            return size;
+        }
+
+        boolean isCompleted() {
+            return completed;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FileProgress)) return false;
+            FileProgress other = (FileProgress) obj;
+            return progress == other.progress && size == other.size && completed == other.completed;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(progress, size, completed);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package unsw.feed;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.google.gson.stream.JsonWriter;
+
+import unsw.blackout.BlackoutController;
+import unsw.feed.FeedSubscription.EntityState;
+import unsw.feed.FeedSubscription.FileProgress;
+import unsw.response.EntityProjection;
+import unsw.response.models.EntityInfoResponse;
+import unsw.response.models.FileInfoResponse;
+
+/**
+ * Pushes what changed in one simulation to everyone subscribed to it, after every tick.
+ *
+ * Each subscriber gets one message per tick, and only if something it is interested in changed
+ * and it is ready for another:
+ * <pre>
+ * {"tick": 12,
+ *  "entities": {"Satellite1": {"position": 1.2, "files": {"a": {"progress": 4, "size": 9, "completed": false}},
+ *                              "removedFiles": ["b"], "inRange": ["DeviceA"]}},
+ *  "removed": ["DeviceB"]}
+ * </pre>
+ * An entity's type and height are only sent the first time it is seen, and files carry how many
+ * bytes have arrived rather than their contents.
+ *
+ * The feed keeps its own copy of every entity. A tick on its own only moves satellites and fills
+ * in files still arriving, so after one only those are looked up again; anything else that
+ * changed shows up as the simulation's version moving on by more than the tick, and then every
+ * entity is looked up again. Nothing is kept or looked up while no subscriber is ready.
+ */
+public class TickFeed {
+    // Subscribers are only ever told how much of each file has arrived
+    private static final EntityProjection WITHOUT_FILE_DATA = EntityProjection.parse(null, "false");
+    private static final EntityProjection WITHOUT_FILES = EntityProjection.parse("position", null);
+
+    private BlackoutController controller;
+    private List<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private Runnable listener = this::publish;
+    // Only touched on the simulating thread; null until there is someone to publish to
+    private Map<String, Entity> entities;
+    private long seenVersion;
+
+    public TickFeed(BlackoutController controller) {
+        this.controller = controller;
+        controller.addTickListener(listener);
+    }
+
+    public void subscribe(FeedSubscription subscription) {
+        subscriptions.add(subscription);
+    }
+
+    public void unsubscribe(FeedSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    public int getNumberOfSubscriptions() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Stops listening to the simulation and disconnects every subscriber.
+     */
+    public void close() {
+        controller.removeTickListener(listener);
+        for (FeedSubscription subscription : subscriptions) subscription.close();
+        subscriptions.clear();
+    }
+
+    /*
+     * Runs on the simulating thread once a tick is done. Entities and ranges are looked up at
+     * most once per tick however many subscribers want them.
+     */
+    private void publish() {
+        List<FeedSubscription> ready = new ArrayList<>();
+        for (FeedSubscription subscription : subscriptions) {
+            if (subscription.isReady()) ready.add(subscription);
+        }
+        if (ready.isEmpty()) {
+            if (subscriptions.isEmpty()) entities = null;
+            return;
+        }
+
+        long version = controller.getVersion();
+        if (entities == null || version != seenVersion + 1) {
+            this.refreshAll();
+        } else {
+            this.refreshAfterTick();
+        }
+        seenVersion = version;
+
+        for (FeedSubscription subscription : ready) {
+            String message = this.buildMessage(subscription);
+            if (message != null) subscription.send(message);
+        }
+    }
+
+    private void refreshAll() {
+        Map<String, Entity> previous = (entities == null) ? Collections.emptyMap() : entities;
+        Map<String, Entity> refreshed = new LinkedHashMap<>();
+        for (String id : controller.listSatelliteIds()) refreshed.put(id, this.refresh(id, previous.get(id), true));
+        for (String id : controller.listDeviceIds()) refreshed.put(id, this.refresh(id, previous.get(id), false));
+        entities = refreshed;
+    }
+
+    /*
+     * Kept entities stay the same object, so their ranges are not worked out again for nothing.
+     */
+    private Entity refresh(String id, Entity entity, boolean moves) {
+        EntityInfoResponse info = controller.getInfo(id, WITHOUT_FILE_DATA);
+        if (entity == null || !entity.type.equals(info.getType())) entity = new Entity(info, moves);
+        entity.update(info);
+        return entity;
+    }
+
+    private void refreshAfterTick() {
+        for (Map.Entry<String, Entity> each : entities.entrySet()) {
+            Entity entity = each.getValue();
+            if (entity.arriving) {
+                entity.update(controller.getInfo(each.getKey(), WITHOUT_FILE_DATA));
+            } else if (entity.moves) {
+                entity.position = controller.getInfo(each.getKey(), WITHOUT_FILES).getPosition().toRadians();
+            }
+        }
+    }
+
+    private String buildMessage(FeedSubscription subscription) {
+        try {
+            StringWriter out = new StringWriter();
+            JsonWriter writer = new JsonWriter(out);
+            boolean changed = false;
+            writer.beginObject();
+            writer.name("tick").value(controller.getCurrentTick());
+            writer.name("entities");
+            writer.beginObject();
+
+            Set<String> matched = new HashSet<>();
+            for (Map.Entry<String, Entity> each : entities.entrySet()) {
+                String id = each.getKey();
+                Entity entity = each.getValue();
+                if (!subscription.matches(id, entity.type)) continue;
+                matched.add(id);
+
+                EntityState after = new EntityState(entity.position, entity.files, this.inRangeOf(id, entity));
+                changed |= this.writeChanges(writer, id, entity, subscription.getPrevious(id), after);
+                subscription.remember(id, after);
+            }
+            writer.endObject();
+
+            Set<String> removed = subscription.forgetAllExcept(matched);
+            if (!removed.isEmpty()) {
+                changed = true;
+                writer.name("removed");
+                writer.beginArray();
+                for (String id : removed) writer.value(id);
+                writer.endArray();
+            }
+            writer.endObject();
+            writer.flush();
+            return changed ? out.toString() : null;
+        } catch (IOException e) {
+            // Writing to a string never fails
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Sorted, so the order the ranges happen to be found in never counts as a change. The sorted
+     * list is only replaced when what is in range actually changes.
+     */
+    private List<String> inRangeOf(String id, Entity entity) {
+        if (entity.rangeVersion == seenVersion) return entity.inRange;
+        List<String> found = controller.communicableEntitiesInRange(id);
+        if (!found.equals(entity.found)) {
+            List<String> inRange = new ArrayList<>(found);
+            Collections.sort(inRange);
+            if (!inRange.equals(entity.inRange)) entity.inRange = inRange;
+            entity.found = found;
+        }
+        entity.rangeVersion = seenVersion;
+        return entity.inRange;
+    }
+
+    /*
+     * Writes whatever differs between before and after, returning whether there was anything.
+     */
+    private boolean writeChanges(JsonWriter writer, String id, Entity entity, EntityState before,
+                                 EntityState after) throws IOException {
+        boolean positionChanged = before == null || before.getPosition() != after.getPosition();
+        boolean rangeChanged = before == null || !same(before.getInRange(), after.getInRange());
+        boolean filesChanged = before == null || !same(before.getFiles(), after.getFiles());
+        if (!positionChanged && !rangeChanged && !filesChanged) return false;
+
+        writer.name(id);
+        writer.beginObject();
+        if (before == null) {
+            writer.name("type").value(entity.type);
+            writer.name("height").value(entity.height);
+        }
+        if (positionChanged) writer.name("position").value(after.getPosition());
+        if (filesChanged) this.writeFileChanges(writer, (before == null) ? null : before.getFiles(), after.getFiles());
+        if (rangeChanged) {
+            writer.name("inRange");
+            writer.beginArray();
+            for (String other : after.getInRange()) writer.value(other);
+            writer.endArray();
+        }
+        writer.endObject();
+        return true;
+    }
+
+    /*
+     * Both are usually the very same list or map, unless it changed.
+     */
+    private static boolean same(Object before, Object after) {
+        return before == after || before.equals(after);
+    }
+
+    private void writeFileChanges(JsonWriter writer, Map<String, FileProgress> before, Map<String, FileProgress> after)
+            throws IOException {
+        writer.name("files");
+        writer.beginObject();
+        for (Map.Entry<String, FileProgress> file : after.entrySet()) {
+            if (before != null && file.getValue().equals(before.get(file.getKey()))) continue;
+            writer.name(file.getKey());
+            writer.beginObject();
+            writer.name("progress").value(file.getValue().getProgress());
+            writer.name("size").value(file.getValue().getSize());
+            writer.name("completed").value(file.getValue().isCompleted());
+            writer.endObject();
+        }
+        writer.endObject();
+
+        if (before == null || after.keySet().containsAll(before.keySet())) return;
+        writer.name("removedFiles");
+        writer.beginArray();
+        for (String filename : before.keySet()) {
+            if (!after.containsKey(filename)) writer.value(filename);
+        }
+        writer.endArray();
+    }
+
+    /*
+     * The feed's copy of one entity. Its files are replaced rather than changed, and only when
+     * they differ, so subscribers can keep hold of them.
+     */
+    private static class Entity {
+        private final String type;
+        private final double height;
+        private final boolean moves;
+        private double position;
+        private Map<String, FileProgress> files = Collections.emptyMap();
+        // Whether any file is still arriving, and so may change on the next tick
+        private boolean arriving;
+        // Who is in range as of rangeVersion, as found and sorted
+        private long rangeVersion = -1;
+        private List<String> found;
+        private List<String> inRange;
+
+        Entity(EntityInfoResponse info, boolean moves) {
+            this.type = info.getType();
+            this.height = info.getHeight();
+            this.moves = moves;
+        }
+
+        void update(EntityInfoResponse info) {
+            position = info.getPosition().toRadians();
+            Map<String, FileProgress> latest = new HashMap<>();
+            arriving = false;
+            for (FileInfoResponse file : info.getFiles().values()) {
+                latest.put(file.getFilename(), new FileProgress(file));
+                arriving |= !file.hasTransferCompleted();
+            }
+            if (!latest.equals(files)) files = Collections.unmodifiableMap(latest);
+        }
+    }
+}
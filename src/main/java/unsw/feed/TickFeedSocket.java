@@ -0,0 +1,166 @@
+package unsw.feed;
+
+import java.net.HttpCookie;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.servlet.http.HttpSession;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.UpgradeRequest;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * WebSocket endpoint that connects each client to the feed of its own HTTP session's simulation.
+ *
+ * Spark needs it registered before any routes. The socket must be opened with the same session
+ * cookie as the rest of the API. A client starts out subscribed to everything, and can narrow
+ * that at any time by sending {"ids": [...], "types": [...]}; an empty or missing list means no
+ * filter on that field.
+ *
+ * Only a few messages to each client are left waiting to be written at once. A client that falls
+ * further behind than that skips ticks until it catches up, rather than having them queue up.
+ *
+ * When the HTTP session ends its feed does too, and the socket is closed with 1001 (going away).
+ */
+@WebSocket
+public class TickFeedSocket {
+    private static final String SESSION_COOKIE = "JSESSIONID";
+    public static final int MAX_SENDS_IN_FLIGHT = 4;
+    private static final String FILTER_ERROR = "{\"error\":\"Filters must look like {ids: [...], types: [...]}\"}";
+
+    private Function<String, TickFeed> feeds;
+    private Map<Session, Connection> connections = new ConcurrentHashMap<>();
+
+    /**
+     * @param feeds finds the feed for an HTTP session ID, or null if there is no such session
+     */
+    public TickFeedSocket(Function<String, TickFeed> feeds) {
+        this.feeds = feeds;
+    }
+
+    @OnWebSocketConnect
+    public void connected(Session session) {
+        String sessionId = sessionIdOf(session.getUpgradeRequest());
+        TickFeed feed = (sessionId == null) ? null : feeds.apply(sessionId);
+        if (feed == null) {
+            session.close(StatusCode.POLICY_VIOLATION, "No session found");
+            return;
+        }
+
+        SendsInFlight sends = new SendsInFlight();
+        FeedSubscription subscription = new FeedSubscription(message -> {
+            if (!session.isOpen()) return;
+            sends.started();
+            session.getRemote().sendString(message, sends);
+        }, sends::hasRoom, () -> session.close(StatusCode.SHUTDOWN, "Session ended"));
+        connections.put(session, new Connection(feed, subscription));
+        feed.subscribe(subscription);
+    }
+
+    @OnWebSocketMessage
+    public void message(Session session, String message) {
+        Connection connection = connections.get(session);
+        if (connection == null) return;
+        try {
+            JsonObject filter = JsonParser.parseString(message).getAsJsonObject();
+            connection.subscription.setFilter(stringsIn(filter, "ids"), stringsIn(filter, "types"));
+        } catch (JsonParseException | IllegalStateException e) {
+            session.getRemote().sendStringByFuture(FILTER_ERROR);
+        }
+    }
+
+    @OnWebSocketClose
+    public void closed(Session session, int statusCode, String reason) {
+        Connection connection = connections.remove(session);
+        if (connection != null) connection.feed.unsubscribe(connection.subscription);
+    }
+
+    /*
+     * Spark serves WebSockets outside of its session handling, so the upgrade request usually
+     * has no session attached; fall back to reading the session cookie. Jetty adds the node
+     * name to the ID in the cookie after a dot.
+     */
+    private static String sessionIdOf(UpgradeRequest request) {
+        Object httpSession = request.getSession();
+        if (httpSession instanceof HttpSession) return ((HttpSession) httpSession).getId();
+        if (request.getCookies() == null) return null;
+
+        for (HttpCookie cookie : request.getCookies()) {
+            if (!cookie.getName().equals(SESSION_COOKIE)) continue;
+            String value = cookie.getValue();
+            int node = value.indexOf('.');
+            return (node < 0) ? value : value.substring(0, node);
+        }
+        return null;
+    }
+
+    /*
+     * Throws IllegalStateException unless the field is missing, null or an array of strings.
+     */
+    private static List<String> stringsIn(JsonObject object, String name) {
+        List<String> result = new ArrayList<>();
+        JsonElement element = object.get(name);
+        if (element == null || element.isJsonNull()) return result;
+        JsonArray array = element.getAsJsonArray();
+        for (JsonElement value : array) {
+            // Gson would turn numbers and booleans into strings, and throws something else for the rest
+            if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isString()) {
+                throw new IllegalStateException(name + " must only hold strings");
+            }
+            result.add(value.getAsString());
+        }
+        return result;
+    }
+
+    /*
+     * Counts messages handed to Jetty that it has not finished writing. Publishing happens on
+     * the simulating thread alone, so the count never goes past the limit.
+     */
+    private static class SendsInFlight implements WriteCallback {
+        private final AtomicInteger count = new AtomicInteger();
+
+        void started() {
+            count.incrementAndGet();
+        }
+
+        boolean hasRoom() {
+            return count.get() < MAX_SENDS_IN_FLIGHT;
+        }
+
+        @Override
+        public void writeSuccess() {
+            count.decrementAndGet();
+        }
+
+        @Override
+        public void writeFailed(Throwable cause) {
+            count.decrementAndGet();
+        }
+    }
+
+    private static class Connection {
+        private final TickFeed feed;
+        private final FeedSubscription subscription;
+
+        Connection(TickFeed feed, FeedSubscription subscription) {
+            this.feed = feed;
+            this.subscription = subscription;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package unsw.job;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import unsw.session.SessionState;
+
+/**
+ * Runs simulation jobs on a fixed number of background threads, with a bounded queue behind them.
+ *
+ * Jobs can be looked up by ID from the session that submitted them until enough newer jobs have
+ * finished to push them out. The sizes come from the environment:
+ * <pre>
+ * blackout:JOB_THREADS  jobs running at once (default: one per processor)
+ * blackout:JOB_QUEUE    jobs waiting to run before more are refused (default 64)
+ * blackout:JOB_HISTORY  finished jobs kept for looking up (default 256)
+ * </pre>
+ */
+public class JobRunner {
+    private static final String PREFIX = "blackout:";
+
+    private final ThreadPoolExecutor executor;
+    private final int history;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<String, SimulationJob> jobs = new ConcurrentHashMap<>();
+    private final Queue<SimulationJob> finished = new ArrayDeque<>();
+
+    public JobRunner(int threads, int queueCapacity, int history) {
+        AtomicLong threadNumber = new AtomicLong(1);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(queueCapacity), task -> {
+            Thread thread = new Thread(task, "simulate-job-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.history = history;
+    }
+
+    public static JobRunner fromEnvironment() {
+        return new JobRunner(getInt("JOB_THREADS", Runtime.getRuntime().availableProcessors()),
+                             getInt("JOB_QUEUE", 64), getInt("JOB_HISTORY", 256));
+    }
+
+    private static int getInt(String name, int orElse) {
+        try {
+            return Integer.parseInt(System.getenv(PREFIX + name));
+        } catch (Exception e) {
+            return orElse;
+        }
+    }
+
+    /**
+     * Queues a job to simulate the given number of ticks on a session. The session is pinned until
+     * the job has finished, so it is not evicted while nobody is asking after it.
+     *
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public SimulationJob submit(String sessionId, SessionState state, int ticks) {
+        String id = Long.toString(nextId.getAndIncrement());
+        SimulationJob job = new SimulationJob(id, sessionId, state, ticks, finished -> {
+            state.unpin();
+            this.retire(finished);
+        });
+        jobs.put(id, job);
+        state.pin();
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            state.unpin();
+            jobs.remove(id);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Gets a job by ID, or null if there is no such job or it belongs to another session.
+     */
+    public SimulationJob find(String sessionId, String jobId) {
+        SimulationJob job = (jobId == null) ? null : jobs.get(jobId);
+        if (job == null || !job.getSessionId().equals(sessionId)) return null;
+        return job;
+    }
+
+    /**
+     * Cancels every job a session has queued or running, such as when it is evicted.
+     */
+    public void cancelSession(String sessionId) {
+        for (SimulationJob job : jobs.values()) {
+            if (job.getSessionId().equals(sessionId)) job.cancel();
+        }
+    }
+
+    /*
+     * Finished jobs are kept for looking up until there are too many of them.
+     */
+    private synchronized void retire(SimulationJob job) {
+        finished.add(job);
+        while (finished.size() > history) jobs.remove(finished.remove().getId());
+    }
+}
@@ -0,0 +1,113 @@
+package unsw.job;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import unsw.response.models.JobInfoResponse;
+import unsw.session.SessionState;
+
+/**
+ * A run of simulate calls on one session, done in the background.
+ *
+ * The job takes the session's write lock for a few milliseconds of ticks at a time and publishes
+ * a snapshot after each, so other requests get in and reads keep up with it while it runs. Every tick is a separate
+ * simulate call, exactly as in the simulate route, so the tick feed sees each one.
+ */
+public class SimulationJob implements Runnable {
+    // How long the write lock is held before letting anyone else in
+    private static final long SLICE_NANOS = 20_000_000;
+
+    public enum Status { QUEUED, RUNNING, DONE, CANCELLED, FAILED }
+
+    private final String id;
+    private final String sessionId;
+    private final SessionState state;
+    private final int ticks;
+    private final Consumer<SimulationJob> onFinish;
+
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.QUEUED);
+    private volatile boolean cancelRequested = false;
+    // Only ever written by the thread running the job
+    private volatile long ticksDone = 0;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile String error;
+
+    SimulationJob(String id, String sessionId, SessionState state, int ticks, Consumer<SimulationJob> onFinish) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.state = state;
+        this.ticks = ticks;
+        this.onFinish = onFinish;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public Status getStatus() {
+        return status.get();
+    }
+
+    public long getTicksDone() {
+        return ticksDone;
+    }
+
+    /**
+     * Ticks done per second of running so far, or over the whole run once it has finished.
+     */
+    public double getTicksPerSecond() {
+        if (startNanos == 0) return 0;
+        long end = (endNanos == 0) ? System.nanoTime() : endNanos;
+        return (end <= startNanos) ? 0 : ticksDone * 1e9 / (end - startNanos);
+    }
+
+    public JobInfoResponse getInfo() {
+        return new JobInfoResponse(id, status.get().name(), ticksDone, ticks, this.getTicksPerSecond(), error);
+    }
+
+    /**
+     * Stops the job after the tick it is on. Ticks already done are kept.
+     */
+    public void cancel() {
+        cancelRequested = true;
+        if (status.compareAndSet(Status.QUEUED, Status.CANCELLED)) onFinish.accept(this);
+    }
+
+    @Override
+    public void run() {
+        if (!status.compareAndSet(Status.QUEUED, Status.RUNNING)) return;
+        startNanos = System.nanoTime();
+        try {
+            while (ticksDone < ticks && !cancelRequested) {
+                state.write(controller -> {
+                    long sliceEnd = System.nanoTime() + SLICE_NANOS;
+                    do {
+                        controller.simulate();
+                        ticksDone++;
+                    } while (ticksDone < ticks && !cancelRequested && System.nanoTime() < sliceEnd);
+                    state.publishAfterWrite();
+                    return null;
+                });
+            }
+            this.finish(cancelRequested ? Status.CANCELLED : Status.DONE);
+        } catch (RuntimeException e) {
+            error = e.toString();
+            this.finish(Status.FAILED);
+        }
+    }
+
+    /*
+     * Lets go of the session before reporting the job finished, so anyone who sees it finished
+     * also sees the session free to be evicted.
+     */
+    private void finish(Status finalStatus) {
+        endNanos = System.nanoTime();
+        onFinish.accept(this);
+        status.set(finalStatus);
+    }
+}
@@ -0,0 +1,65 @@
+package unsw.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import unsw.response.models.HistogramResponse;
+
+/**
+ * Durations counted into buckets that double in width, from under a microsecond to over half
+ * an hour, so recording one is a few atomic adds and never allocates.
+ *
+ * Quantiles are read off the buckets, so they are only as precise as the bucket they land in:
+ * each is reported as its bucket's upper bound, which is at most twice the true value.
+ */
+public class LatencyHistogram {
+    // Bucket 0 holds durations under 1us, and bucket i those under 2^i us; the last one takes the rest
+    private static final int BUCKETS = 32;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos) / 1000;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        counts.incrementAndGet(bucket);
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) count += counts.get(i);
+        return count;
+    }
+
+    /**
+     * The duration, in microseconds, that the given fraction of recordings came in under.
+     */
+    public double quantileMicros(double fraction) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        double maxMicros = maxNanos.get() / 1000.0;
+        for (int i = 0; i < BUCKETS; i++) {
+            rank -= snapshot[i];
+            if (rank <= 0) return Math.min(maxMicros, (double) (1L << i));
+        }
+        return maxMicros;
+    }
+
+    public HistogramResponse summarise() {
+        long count = this.getCount();
+        double meanMicros = (count == 0) ? 0 : totalNanos.sum() / 1000.0 / count;
+        return new HistogramResponse(count, meanMicros, this.quantileMicros(0.5), this.quantileMicros(0.9),
+                                     this.quantileMicros(0.99), maxNanos.get() / 1000.0);
+    }
+}
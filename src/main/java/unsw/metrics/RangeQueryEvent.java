@@ -0,0 +1,43 @@
+package unsw.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One question of what an entity can reach in a flight recording. Answers worked out earlier
+ * in the tick take well under the threshold, so by default only the ones that had to work out
+ * connectivity again are recorded.
+ */
+@Name("unsw.blackout.RangeQuery")
+@Label("Range Query")
+@Category("Blackout")
+@Description("Everything one entity can transfer files with, directly or through relays")
+@StackTrace(false)
+@Threshold("100 us")
+public class RangeQueryEvent extends Event {
+    @Label("Entity")
+    private String id;
+
+    @Label("In Range")
+    private int inRange;
+
+    @Label("Rebuilt")
+    @Description("Whether connectivity had to be worked out again for this query")
+    private boolean rebuilt;
+
+    /**
+     * Ends the event and commits it, if it is being recorded and took long enough.
+     */
+    public void record(String id, int inRange, boolean rebuilt) {
+        if (!this.shouldCommit()) return;
+        this.id = id;
+        this.inRange = inRange;
+        this.rebuilt = rebuilt;
+        this.commit();
+    }
+}
@@ -0,0 +1,39 @@
+package unsw.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import unsw.response.models.HistogramResponse;
+
+/**
+ * How long each route takes to answer, by method and path.
+ *
+ * Paths come from clients, so only the first {@link #MAX_ROUTES} are kept apart and anything
+ * after that is counted together under {@link #OTHER}.
+ */
+public class RouteMetrics {
+    public static final int MAX_ROUTES = 64;
+    public static final String OTHER = "other";
+
+    private final Map<String, LatencyHistogram> routes = new ConcurrentHashMap<>();
+
+    public void record(String method, String path, long nanos) {
+        String route = method + " " + path;
+        LatencyHistogram histogram = routes.get(route);
+        if (histogram == null) {
+            if (routes.size() >= MAX_ROUTES) route = OTHER;
+            histogram = routes.computeIfAbsent(route, key -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * Every route's latencies, in order of route.
+     */
+    public Map<String, HistogramResponse> summarise() {
+        Map<String, HistogramResponse> summary = new TreeMap<>();
+        routes.forEach((route, histogram) -> summary.put(route, histogram.summarise()));
+        return summary;
+    }
+}
@@ -0,0 +1,48 @@
+package unsw.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One request to send a file in a flight recording, whether or not a transfer came of it.
+ */
+@Name("unsw.blackout.SendFile")
+@Label("Send File")
+@Category("Blackout")
+@Description("A request to start sending a file from one entity to another")
+@StackTrace(false)
+public class SendFileEvent extends Event {
+    @Label("File Name")
+    private String fileName;
+
+    @Label("From")
+    private String fromId;
+
+    @Label("To")
+    private String toId;
+
+    @Label("Active Transfers")
+    @Description("Transfers under way afterwards, across the whole simulation")
+    private int activeTransfers;
+
+    @Label("Refused")
+    @Description("Name of the exception the transfer was refused with, or null if it started")
+    private String refused;
+
+    /**
+     * Ends the event and commits it, if it is being recorded.
+     */
+    public void record(String fileName, String fromId, String toId, int activeTransfers, String refused) {
+        if (!this.shouldCommit()) return;
+        this.fileName = fileName;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.activeTransfers = activeTransfers;
+        this.refused = refused;
+        this.commit();
+    }
+}
@@ -0,0 +1,55 @@
+package unsw.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call to simulate in a flight recording, from moving the satellites to the last transfer
+ * it completed, which may cover several minutes.
+ */
+@Name("unsw.blackout.Simulate")
+@Label("Simulate")
+@Category("Blackout")
+@Description("Satellites moved and transfers progressed by one call to simulate")
+@StackTrace(false)
+public class SimulateEvent extends Event {
+    @Label("Minutes")
+    private int minutes;
+
+    @Label("Tick")
+    @Description("Minute the simulation reached")
+    private long tick;
+
+    @Label("Satellites")
+    private int satellites;
+
+    @Label("Devices")
+    private int devices;
+
+    @Label("Active Transfers")
+    @Description("Transfers still under way at the end")
+    private int activeTransfers;
+
+    @Label("Bytes Moved")
+    @DataAmount
+    private long bytesMoved;
+
+    /**
+     * Ends the event and commits it, if it is being recorded.
+     */
+    public void record(int minutes, long tick, int satellites, int devices, int activeTransfers, long bytesMoved) {
+        if (!this.shouldCommit()) return;
+        this.minutes = minutes;
+        this.tick = tick;
+        this.satellites = satellites;
+        this.devices = devices;
+        this.activeTransfers = activeTransfers;
+        this.bytesMoved = bytesMoved;
+        this.commit();
+    }
+}
@@ -0,0 +1,89 @@
+package unsw.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where simulations spend their time, added up across every session that shares it.
+ *
+ * A simulation without one skips the timing altogether. A tick is timed in two phases, moving the
+ * satellites and progressing transfers; working out what is in range is timed whenever it is
+ * next needed after a tick, and so is building a snapshot for readers. All of it is safe to
+ * record from any number of threads at once.
+ */
+public class TickMetrics {
+    private static final String VARIABLE = "blackout:METRICS";
+
+    private final LatencyHistogram positions = new LatencyHistogram();
+    private final LatencyHistogram transfers = new LatencyHistogram();
+    private final LatencyHistogram connectivity = new LatencyHistogram();
+    private final LatencyHistogram snapshots = new LatencyHistogram();
+
+    private final LongAdder activeTransfers = new LongAdder();
+    private final LongAccumulator maxActiveTransfers = new LongAccumulator(Math::max, 0);
+    private final LongAdder bytesMoved = new LongAdder();
+    private final LongAdder rangeChecks = new LongAdder();
+
+    /**
+     * Metrics to share between sessions if blackout:METRICS is true, or null to leave them off.
+     */
+    public static TickMetrics fromEnvironment() {
+        return Boolean.parseBoolean(System.getenv(VARIABLE)) ? new TickMetrics() : null;
+    }
+
+    /**
+     * Records one call to simulate, which may cover several minutes.
+     *
+     * @param activeTransfers transfers still under way at the end of it
+     * @param bytesMoved bytes moved by every transfer along the way
+     */
+    public void recordTick(long positionNanos, long transferNanos, int activeTransfers, long bytesMoved) {
+        positions.record(positionNanos);
+        transfers.record(transferNanos);
+        this.activeTransfers.add(activeTransfers);
+        maxActiveTransfers.accumulate(activeTransfers);
+        this.bytesMoved.add(bytesMoved);
+    }
+
+    /**
+     * Records working out what is in range of what, having checked the given number of pairs.
+     */
+    public void recordConnectivity(long nanos, long rangeChecks) {
+        connectivity.record(nanos);
+        this.rangeChecks.add(rangeChecks);
+    }
+
+    public void recordSnapshot(long nanos) {
+        snapshots.record(nanos);
+    }
+
+    /**
+     * Everything recorded so far, ready to be written as JSON.
+     */
+    public Map<String, Object> summarise() {
+        long ticks = positions.getCount();
+        long builds = connectivity.getCount();
+
+        Map<String, Object> phases = new LinkedHashMap<>();
+        phases.put("positions", positions.summarise());
+        phases.put("transfers", transfers.summarise());
+        phases.put("connectivity", connectivity.summarise());
+        phases.put("snapshot", snapshots.summarise());
+
+        Map<String, Object> counters = new LinkedHashMap<>();
+        counters.put("meanActiveTransfers", (ticks == 0) ? 0 : activeTransfers.sum() / (double) ticks);
+        counters.put("maxActiveTransfers", maxActiveTransfers.get());
+        counters.put("bytesMoved", bytesMoved.sum());
+        counters.put("meanBytesMovedPerTick", (ticks == 0) ? 0 : bytesMoved.sum() / (double) ticks);
+        counters.put("rangeChecks", rangeChecks.sum());
+        counters.put("meanRangeChecksPerBuild", (builds == 0) ? 0 : rangeChecks.sum() / (double) builds);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("ticks", ticks);
+        summary.put("phases", phases);
+        summary.put("counters", counters);
+        return summary;
+    }
+}
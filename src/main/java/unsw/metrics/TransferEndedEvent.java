@@ -0,0 +1,64 @@
+package unsw.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A transfer that has stopped, either because the whole file arrived or because it was
+ * cancelled, in a flight recording. It happens at an instant; how long the transfer took is
+ * given in simulated minutes.
+ */
+@Name("unsw.blackout.TransferEnded")
+@Label("Transfer Ended")
+@Category("Blackout")
+@Description("A file transfer that completed or was cancelled")
+@StackTrace(false)
+public class TransferEndedEvent extends Event {
+    @Label("File Name")
+    private String fileName;
+
+    @Label("From")
+    private String fromId;
+
+    @Label("To")
+    private String toId;
+
+    @Label("Size")
+    @DataAmount
+    private long size;
+
+    @Label("Bytes Sent")
+    @DataAmount
+    private long bytesSent;
+
+    @Label("Start Tick")
+    private long startTick;
+
+    @Label("End Tick")
+    private long endTick;
+
+    @Label("Completed")
+    private boolean completed;
+
+    /**
+     * Commits the event, if it is being recorded.
+     */
+    public void record(String fileName, String fromId, String toId, long size, long bytesSent, long startTick,
+                       long endTick, boolean completed) {
+        if (!this.shouldCommit()) return;
+        this.fileName = fileName;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.size = size;
+        this.bytesSent = bytesSent;
+        this.startTick = startTick;
+        this.endTick = endTick;
+        this.completed = completed;
+        this.commit();
+    }
+}
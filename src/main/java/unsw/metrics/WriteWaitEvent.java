@@ -0,0 +1,29 @@
+package unsw.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Time spent waiting for another writer to finish with a session, in a flight recording. Only
+ * waits that actually happened are recorded; taking a free lock is not.
+ */
+@Name("unsw.blackout.WriteWait")
+@Label("Session Write Wait")
+@Category("Blackout")
+@Description("Waiting for the write lock of a session another writer was holding")
+public class WriteWaitEvent extends Event {
+    @Label("Session Epoch")
+    private String epoch;
+
+    /**
+     * Ends the event and commits it, if it is being recorded.
+     */
+    public void record(String epoch) {
+        if (!this.shouldCommit()) return;
+        this.epoch = epoch;
+        this.commit();
+    }
+}
@@ -0,0 +1,127 @@
+package unsw.response;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Which parts of each entity a client wants back.
+ *
+ * Asked for with fields=id,position,height,type,files, in any order, and fileData=false to get
+ * each file's name, size and progress without its contents. A response is projected by wrapping
+ * it with {@link #apply}; the adapters in {@link ResponseAdapters} then leave out whatever was not
+ * asked for as they write every entity inside it, however deeply nested.
+ */
+public final class EntityProjection {
+    public static final EntityProjection ALL = new EntityProjection(true, true, true, true, true, true);
+    private static final List<String> FIELDS = Arrays.asList("id", "position", "height", "type", "files");
+
+    private final boolean id;
+    private final boolean position;
+    private final boolean height;
+    private final boolean type;
+    private final boolean files;
+    private final boolean fileData;
+
+    private EntityProjection(boolean id, boolean position, boolean height, boolean type, boolean files,
+                             boolean fileData) {
+        this.id = id;
+        this.position = position;
+        this.height = height;
+        this.type = type;
+        this.files = files;
+        this.fileData = fileData;
+    }
+
+    /**
+     * @param fields comma separated fields to keep, or null for all of them
+     * @param fileData "false" to leave out file contents, otherwise null or "true"
+     * @throws IllegalArgumentException naming any field that does not exist
+     */
+    public static EntityProjection parse(String fields, String fileData) {
+        Set<String> wanted = new HashSet<>(FIELDS);
+        if (fields != null && !fields.isEmpty()) {
+            wanted.clear();
+            for (String field : fields.split(",")) {
+                String name = field.trim();
+                if (!FIELDS.contains(name)) throw new IllegalArgumentException("Unknown field " + name);
+                wanted.add(name);
+            }
+        }
+        EntityProjection projection = new EntityProjection(wanted.contains("id"), wanted.contains("position"),
+                wanted.contains("height"), wanted.contains("type"), wanted.contains("files"),
+                !"false".equalsIgnoreCase(fileData));
+        return projection.equals(ALL) ? ALL : projection;
+    }
+
+    /**
+     * Marks a response to be written with this projection. Responses projected onto everything
+     * are returned as they are.
+     */
+    public Object apply(Object response) {
+        return (this == ALL) ? response : new Projected(this, response);
+    }
+
+    public boolean hasId() {
+        return id;
+    }
+
+    public boolean hasPosition() {
+        return position;
+    }
+
+    public boolean hasHeight() {
+        return height;
+    }
+
+    public boolean hasType() {
+        return type;
+    }
+
+    public boolean hasFiles() {
+        return files;
+    }
+
+    /**
+     * Whether files carry their contents, rather than just how much of them has arrived.
+     */
+    public boolean hasFileData() {
+        return fileData;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof EntityProjection)) return false;
+        EntityProjection other = (EntityProjection) obj;
+        return id == other.id && position == other.position && height == other.height && type == other.type
+                && files == other.files && fileData == other.fileData;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, position, height, type, files, fileData);
+    }
+
+    /**
+     * A response together with the projection to write it with.
+     */
+    public static final class Projected {
+        private final EntityProjection projection;
+        private final Object response;
+
+        private Projected(EntityProjection projection, Object response) {
+            this.projection = projection;
+            this.response = response;
+        }
+
+        public EntityProjection getProjection() {
+            return projection;
+        }
+
+        public Object getResponse() {
+            return response;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package unsw.response;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import unsw.response.models.EntityInfoResponse;
+import unsw.response.models.FileInfoResponse;
+import unsw.utils.Angle;
+
+/**
+ * Hand written type adapters for the response models, which stream each field straight to the
+ * writer instead of going through reflection.
+ *
+ * The JSON is exactly what reflection would give, with angles written as a bare number of
+ * radians. Doubles can optionally be rounded to a fixed number of decimal places, which makes
+ * responses made mostly of positions noticeably smaller. Responses wrapped by an
+ * {@link EntityProjection} are written with only the fields it asks for.
+ */
+public final class ResponseAdapters {
+    // Written as is, without rounding
+    public static final int FULL_PRECISION = -1;
+    private static final String PRECISION_VARIABLE = "blackout:JSON_PRECISION";
+
+    private ResponseAdapters() {
+    }
+
+    /**
+     * Registers the adapters, with doubles rounded to the given number of decimal places or written
+     * in full for {@link #FULL_PRECISION}.
+     */
+    public static GsonBuilder register(GsonBuilder builder, int decimalPlaces) {
+        Doubles doubles = new Doubles(decimalPlaces);
+        FileInfoAdapter files = new FileInfoAdapter();
+        EntityInfoAdapter entities = new EntityInfoAdapter(doubles, files);
+        return builder.registerTypeAdapter(Angle.class, new AngleAdapter(doubles).nullSafe())
+                      .registerTypeAdapter(FileInfoResponse.class, files.nullSafe())
+                      .registerTypeAdapter(EntityInfoResponse.class, entities.nullSafe())
+                      .registerTypeAdapterFactory(new ProjectedAdapterFactory(entities));
+    }
+
+    /**
+     * Number of decimal places from blackout:JSON_PRECISION, or full precision if it is not set.
+     */
+    public static int precisionFromEnvironment() {
+        try {
+            return Integer.parseInt(System.getenv(PRECISION_VARIABLE));
+        } catch (Exception e) {
+            return FULL_PRECISION;
+        }
+    }
+
+    /*
+     * Writes doubles, rounding them first if asked to.
+     */
+    private static class Doubles {
+        private final double scale;
+
+        Doubles(int decimalPlaces) {
+            this.scale = (decimalPlaces < 0) ? 0 : Math.pow(10, decimalPlaces);
+        }
+
+        void write(JsonWriter out, double value) throws IOException {
+            // Values too large to round this way already have fewer decimal places than asked for
+            if (scale != 0 && Math.abs(value) < Long.MAX_VALUE / scale) value = Math.round(value * scale) / scale;
+            out.value(value);
+        }
+    }
+
+    private static class AngleAdapter extends TypeAdapter<Angle> {
+        private final Doubles doubles;
+
+        AngleAdapter(Doubles doubles) {
+            this.doubles = doubles;
+        }
+
+        @Override
+        public void write(JsonWriter out, Angle angle) throws IOException {
+            doubles.write(out, angle.toRadians());
+        }
+
+        @Override
+        public Angle read(JsonReader in) throws IOException {
+            return Angle.fromRadians(in.nextDouble());
+        }
+    }
+
+    private static class FileInfoAdapter extends TypeAdapter<FileInfoResponse> {
+        @Override
+        public void write(JsonWriter out, FileInfoResponse file) throws IOException {
+            this.write(out, file, true);
+        }
+
+        /*
+         * Without data, a file says how much of it has arrived instead.
+         */
+        void write(JsonWriter out, FileInfoResponse file, boolean withData) throws IOException {
+            out.beginObject();
+            out.name("filename").value(file.getFilename());
+            if (withData) {
+                out.name("data").value(file.getData());
+            } else {
+                out.name("progress").value(file.getProgress());
+            }
+            out.name("fileSize").value(file.getFileSize());
+            out.name("hasTransferCompleted").value(file.hasTransferCompleted());
+            out.endObject();
+        }
+
+        @Override
+        public FileInfoResponse read(JsonReader in) throws IOException {
+            String filename = null;
+            String data = null;
+            int fileSize = 0;
+            boolean hasTransferCompleted = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "filename": filename = nextString(in); break;
+                    case "data": data = nextString(in); break;
+                    case "fileSize": fileSize = in.nextInt(); break;
+                    case "hasTransferCompleted": hasTransferCompleted = in.nextBoolean(); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return new FileInfoResponse(filename, data, fileSize, hasTransferCompleted);
+        }
+    }
+
+    private static class EntityInfoAdapter extends TypeAdapter<EntityInfoResponse> {
+        private final Doubles doubles;
+        private final FileInfoAdapter files;
+
+        EntityInfoAdapter(Doubles doubles, FileInfoAdapter files) {
+            this.doubles = doubles;
+            this.files = files;
+        }
+
+        @Override
+        public void write(JsonWriter out, EntityInfoResponse entity) throws IOException {
+            this.write(out, entity, EntityProjection.ALL);
+        }
+
+        void write(JsonWriter out, EntityInfoResponse entity, EntityProjection projection) throws IOException {
+            out.beginObject();
+            if (projection.hasId()) out.name("id").value(entity.getDeviceId());
+            if (projection.hasPosition() && entity.getPosition() != null) {
+                out.name("position");
+                doubles.write(out, entity.getPosition().toRadians());
+            }
+            if (projection.hasHeight()) {
+                out.name("height");
+                doubles.write(out, entity.getHeight());
+            }
+            if (projection.hasType()) out.name("type").value(entity.getType());
+            if (projection.hasFiles() && entity.getFiles() != null) {
+                out.name("files").beginObject();
+                for (Map.Entry<String, FileInfoResponse> file : entity.getFiles().entrySet()) {
+                    out.name(file.getKey());
+                    if (file.getValue() == null) {
+                        out.nullValue();
+                    } else {
+                        files.write(out, file.getValue(), projection.hasFileData());
+                    }
+                }
+                out.endObject();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public EntityInfoResponse read(JsonReader in) throws IOException {
+            String id = null;
+            Angle position = null;
+            double height = 0;
+            String type = null;
+            Map<String, FileInfoResponse> fileInfos = new HashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": id = nextString(in); break;
+                    case "position": position = Angle.fromRadians(in.nextDouble()); break;
+                    case "height": height = in.nextDouble(); break;
+                    case "type": type = nextString(in); break;
+                    case "files":
+                        in.beginObject();
+                        while (in.hasNext()) fileInfos.put(in.nextName(), files.read(in));
+                        in.endObject();
+                        break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return new EntityInfoResponse(id, position, height, type, fileInfos);
+        }
+    }
+
+    /*
+     * Writes a projected response by walking the maps and collections inside it, projecting every
+     * entity and file it finds and handing anything else back to Gson. Projections are only ever written.
+     */
+    private static class ProjectedAdapterFactory implements TypeAdapterFactory {
+        private final EntityInfoAdapter entities;
+
+        ProjectedAdapterFactory(EntityInfoAdapter entities) {
+            this.entities = entities;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != EntityProjection.Projected.class) return null;
+            return (TypeAdapter<T>) new TypeAdapter<EntityProjection.Projected>() {
+                @Override
+                public void write(JsonWriter out, EntityProjection.Projected projected) throws IOException {
+                    this.writeValue(out, projected.getResponse(), projected.getProjection());
+                }
+
+                private void writeValue(JsonWriter out, Object value, EntityProjection projection)
+                        throws IOException {
+                    if (value == null) {
+                        out.nullValue();
+                    } else if (value instanceof EntityInfoResponse) {
+                        entities.write(out, (EntityInfoResponse) value, projection);
+                    } else if (value instanceof FileInfoResponse) {
+                        entities.files.write(out, (FileInfoResponse) value, projection.hasFileData());
+                    } else if (value instanceof Map) {
+                        out.beginObject();
+                        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                            out.name(String.valueOf(entry.getKey()));
+                            this.writeValue(out, entry.getValue(), projection);
+                        }
+                        out.endObject();
+                    } else if (value instanceof Iterable) {
+                        out.beginArray();
+                        for (Object element : (Iterable<?>) value) this.writeValue(out, element, projection);
+                        out.endArray();
+                    } else {
+                        ((TypeAdapter<Object>) gson.getAdapter(value.getClass())).write(out, value);
+                    }
+                }
+
+                @Override
+                public EntityProjection.Projected read(JsonReader in) {
+                    throw new UnsupportedOperationException("Projected responses are only written");
+                }
+            };
+        }
+    }
+
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.NULL) return in.nextString();
+        in.nextNull();
+        return null;
+    }
+}
@@ -0,0 +1,68 @@
+package unsw.response;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The last body written for each of a session's most recently used requests, along with the
+ * version of the simulation it was written from.
+ *
+ * A body is only reused for the version it was written from, so once the simulation moves on the
+ * next request writes a fresh one and replaces it. Bodies are written outside the lock, so two
+ * requests that miss at once may both write one; whichever finishes last is kept.
+ */
+public class ResponseCache {
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private final int capacity;
+    // In access order, so the least recently used request is dropped first
+    private final LinkedHashMap<String, Body> bodies;
+
+    public ResponseCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ResponseCache(int capacity) {
+        this.capacity = capacity;
+        this.bodies = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Body> eldest) {
+                return size() > ResponseCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the body for a request at the given version, writing it if it is not already here.
+     *
+     * @param key the request, including anything that changes what is written
+     */
+    public String get(String key, long version, Supplier<String> write) {
+        synchronized (this) {
+            Body body = bodies.get(key);
+            if (body != null && body.version == version) return body.text;
+        }
+        String text = write.get();
+        synchronized (this) {
+            Body body = bodies.get(key);
+            // A newer body may have been put in while this one was written
+            if (body == null || body.version <= version) bodies.put(key, new Body(version, text));
+        }
+        return text;
+    }
+
+    public synchronized int size() {
+        return bodies.size();
+    }
+
+    private static class Body {
+        private final long version;
+        private final String text;
+
+        Body(long version, String text) {
+            this.version = version;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package unsw.response;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import unsw.response.models.EntityInfoResponse;
+import unsw.response.models.FileInfoResponse;
+
+/**
+ * Writes simulation ticks straight out as a JSON array, one element per tick, as they happen.
+ *
+ * Each element maps entity IDs to only what changed about that entity since the previous tick:
+ * any of position, height and type, plus a files object holding the full info of each file that
+ * is new or changed. Entities that did not change at all are left out, so the first tick lists
+ * every entity in full and later ticks are usually just positions. Only a summary of the
+ * previous tick is kept, never any file contents, so memory does not grow with the number of ticks.
+ *
+ * With an {@link EntityProjection}, only the fields it asks for are written, and an entity is only
+ * left in after the first tick if one of those fields changed. Files are written through the
+ * projection too, so they can leave out their contents.
+ */
+public class TickStreamWriter {
+    private JsonWriter writer;
+    private Gson gson;
+    private EntityProjection projection;
+    private Map<String, EntityState> previous = new HashMap<>();
+    private Map<String, EntityState> current = new HashMap<>();
+
+    public TickStreamWriter(Writer out, Gson gson) throws IOException {
+        this(out, gson, EntityProjection.ALL);
+    }
+
+    /**
+     * @param gson must have the {@link ResponseAdapters} registered for any projection but ALL
+     */
+    public TickStreamWriter(Writer out, Gson gson, EntityProjection projection) throws IOException {
+        this.writer = new JsonWriter(out);
+        this.gson = gson;
+        this.projection = projection;
+        writer.beginArray();
+    }
+
+    /**
+     * Writes one tick given every entity as it is now, and flushes it to the client.
+     */
+    public void writeTick(Iterable<EntityInfoResponse> entities) throws IOException {
+        writer.beginObject();
+        for (EntityInfoResponse info : entities) {
+            EntityState before = previous.get(info.getDeviceId());
+            EntityState after = new EntityState(info);
+            current.put(info.getDeviceId(), after);
+            if (!after.equals(before)) this.writeChanges(info, before, after);
+        }
+        writer.endObject();
+        writer.flush();
+
+        // Swap the maps around so the next tick reuses this one's storage
+        Map<String, EntityState> swap = previous;
+        previous = current;
+        current = swap;
+        current.clear();
+    }
+
+    /*
+     * Writes whichever projected fields changed. An entity seen for the first time is always
+     * written, even if none of its fields are projected.
+     */
+    private void writeChanges(EntityInfoResponse info, EntityState before, EntityState after) throws IOException {
+        boolean positionChanged = projection.hasPosition() && (before == null || before.position != after.position);
+        boolean heightChanged = projection.hasHeight() && (before == null || before.height != after.height);
+        boolean typeChanged = projection.hasType() && (before == null || !Objects.equals(before.type, after.type));
+        boolean filesChanged = projection.hasFiles() && (before == null || !before.files.equals(after.files));
+        if (before != null && !positionChanged && !heightChanged && !typeChanged && !filesChanged) return;
+
+        writer.name(info.getDeviceId());
+        writer.beginObject();
+        if (positionChanged) writer.name("position").value(after.position);
+        if (heightChanged) writer.name("height").value(after.height);
+        if (typeChanged) writer.name("type").value(after.type);
+        if (filesChanged) this.writeFiles(info, before, after);
+        writer.endObject();
+    }
+
+    /*
+     * Writes every file that is new or changed, as the projection has it.
+     */
+    private void writeFiles(EntityInfoResponse info, EntityState before, EntityState after) throws IOException {
+        writer.name("files");
+        writer.beginObject();
+        for (FileInfoResponse file : info.getFiles().values()) {
+            FileState fileBefore = (before == null) ? null : before.files.get(file.getFilename());
+            if (after.files.get(file.getFilename()).equals(fileBefore)) continue;
+            writer.name(file.getFilename());
+            Object projected = projection.apply(file);
+            gson.toJson(projected, projected.getClass(), writer);
+        }
+        writer.endObject();
+    }
+
+    /**
+     * Ends the array. The underlying writer is left open.
+     */
+    public void finish() throws IOException {
+        writer.endArray();
+        writer.flush();
+    }
+
+    /*
+     * Just enough of an entity to tell whether it changed. A file's contents only ever grow while
+     * it arrives, so its length stands in for the data itself.
+     */
+    private static class EntityState {
+        private final double position;
+        private final double height;
+        private final String type;
+        private final Map<String, FileState> files = new HashMap<>();
+
+        EntityState(EntityInfoResponse info) {
+            this.position = info.getPosition().toRadians();
+            this.height = info.getHeight();
+            this.type = info.getType();
+            for (FileInfoResponse file : info.getFiles().values()) {
+                files.put(file.getFilename(), new FileState(file));
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof EntityState)) return false;
+            EntityState other = (EntityState) obj;
+            return position == other.position && height == other.height && Objects.equals(type, other.type)
+                    && files.equals(other.files);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(position, height, type, files);
+        }
+    }
+
+    private static class FileState {
+        private final int length;
+        private final int size;
+        private final boolean completed;
+
+        FileState(FileInfoResponse file) {
+            this.length = file.getProgress();
+            this.size = file.getFileSize();
+            this.completed = file.hasTransferCompleted();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FileState)) return false;
+            FileState other = (FileState) obj;
+            return length == other.length && size == other.size && completed == other.completed;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(length, size, completed);
+        }
+    }
+}
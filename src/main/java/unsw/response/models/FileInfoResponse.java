@@ -36,13 +36,32 @@ public final class FileInfoResponse {
      */
     private final boolean hasTransferCompleted;
 
+    /**
+     * How much of the data has been transferred, kept even when the data itself is left out.
+     * Not written out by Gson, since it is the length of the data whenever the data is there.
+     */
+    private final transient int progress;
+
     public FileInfoResponse(String filename, String data, int fileSize, boolean hasTransferCompleted) {
+        this(filename, data, (data == null) ? 0 : data.length(), fileSize, hasTransferCompleted);
+    }
+
+    private FileInfoResponse(String filename, String data, int progress, int fileSize, boolean hasTransferCompleted) {
         this.filename = filename;
         this.data = data;
+        this.progress = progress;
         this.fileSize = fileSize;
         this.hasTransferCompleted = hasTransferCompleted;
     }
 
+    /**
+     * A file with its data left out, for when only how much of it has arrived is wanted.
+     */
+    public static FileInfoResponse withoutData(String filename, int progress, int fileSize,
+                                               boolean hasTransferCompleted) {
+        return new FileInfoResponse(filename, null, progress, fileSize, hasTransferCompleted);
+    }
+
     public final boolean hasTransferCompleted() {
         return hasTransferCompleted;
     }
@@ -55,19 +74,23 @@ public final class FileInfoResponse {
         return data;
     }
 
+    public final int getProgress() {
+        return progress;
+    }
+
     public final String getFilename() {
         return filename;
     }
 
     @Override
     public String toString() {
-        return "FileInfoResponse [data=" + data + ", fileSize=" + fileSize + ", filename=" + filename
-                + ", hasTransferCompleted=" + hasTransferCompleted + "]";
+        return "FileInfoResponse [data=" + data + ", progress=" + progress + ", fileSize=" + fileSize
+                + ", filename=" + filename + ", hasTransferCompleted=" + hasTransferCompleted + "]";
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(data, fileSize, filename, hasTransferCompleted);
+        return Objects.hash(data, progress, fileSize, filename, hasTransferCompleted);
     }
 
     @Override
@@ -80,7 +103,7 @@ public final class FileInfoResponse {
             return false;
 
         FileInfoResponse other = (FileInfoResponse) obj;
-        return Objects.equals(data, other.data) && fileSize == other.fileSize
+        return Objects.equals(data, other.data) && progress == other.progress && fileSize == other.fileSize
                 && Objects.equals(filename, other.filename) && hasTransferCompleted == other.hasTransferCompleted;
     }
 }
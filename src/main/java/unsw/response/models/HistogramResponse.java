@@ -0,0 +1,47 @@
+package unsw.response.models;
+
+/**
+ * Represents how long something took over many runs, in microseconds.
+ */
+public final class HistogramResponse {
+    private final long count;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p90Micros;
+    private final double p99Micros;
+    private final double maxMicros;
+
+    public HistogramResponse(long count, double meanMicros, double p50Micros, double p90Micros, double p99Micros,
+                             double maxMicros) {
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public final long getCount() {
+        return count;
+    }
+
+    public final double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public final double getP50Micros() {
+        return p50Micros;
+    }
+
+    public final double getP90Micros() {
+        return p90Micros;
+    }
+
+    public final double getP99Micros() {
+        return p99Micros;
+    }
+
+    public final double getMaxMicros() {
+        return maxMicros;
+    }
+}
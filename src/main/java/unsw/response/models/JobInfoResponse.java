@@ -0,0 +1,49 @@
+package unsw.response.models;
+
+/**
+ * Represents the progress of a simulation job.
+ */
+public final class JobInfoResponse {
+    private final String id;
+    private final String status;
+    private final long ticksDone;
+    private final long ticks;
+    private final double ticksPerSecond;
+    private final String error;
+
+    public JobInfoResponse(String id, String status, long ticksDone, long ticks, double ticksPerSecond, String error) {
+        this.id = id;
+        this.status = status;
+        this.ticksDone = ticksDone;
+        this.ticks = ticks;
+        this.ticksPerSecond = ticksPerSecond;
+        this.error = error;
+    }
+
+    public final String getId() {
+        return id;
+    }
+
+    public final String getStatus() {
+        return status;
+    }
+
+    public final long getTicksDone() {
+        return ticksDone;
+    }
+
+    public final long getTicks() {
+        return ticks;
+    }
+
+    public final double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /**
+     * What went wrong if the job failed, otherwise null.
+     */
+    public final String getError() {
+        return error;
+    }
+}
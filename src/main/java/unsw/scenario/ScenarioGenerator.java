@@ -0,0 +1,163 @@
+package unsw.scenario;
+
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+import com.google.gson.stream.JsonWriter;
+
+import unsw.blackout.EntityBatch;
+import unsw.utils.Angle;
+
+/**
+ * Makes up a constellation and a file workload from a seed, so the same seed always gives exactly
+ * the same scenario.
+ *
+ * There are the same number of satellites of every type and devices of every type. Satellites
+ * orbit anywhere from 10,000km to 90,000km up, except relays, which start inside the band they
+ * sway in. Every device gets the same number of files, sized so that most will fit on a standard
+ * satellite and some are too big for one, and one in four has no letter t, which teleporting
+ * satellites treat specially.
+ */
+public class ScenarioGenerator {
+    public static final String[] SATELLITE_TYPES = {"StandardSatellite", "TeleportingSatellite", "RelaySatellite"};
+    public static final String[] DEVICE_TYPES = {"HandheldDevice", "LaptopDevice", "DesktopDevice"};
+
+    private static final double MIN_HEIGHT = 10_000;
+    private static final double MAX_HEIGHT = 90_000;
+    private static final double RELAY_BAND_LOW = 140;
+    private static final double RELAY_BAND_HIGH = 190;
+    private static final int MIN_FILE_SIZE = 5;
+    private static final int MAX_FILE_SIZE = 120;
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz ";
+
+    private final long seed;
+    private final int satellitesPerType;
+    private final int devicesPerType;
+    private final int filesPerDevice;
+
+    public ScenarioGenerator(long seed, int satellitesPerType, int devicesPerType, int filesPerDevice) {
+        this.seed = seed;
+        this.satellitesPerType = satellitesPerType;
+        this.devicesPerType = devicesPerType;
+        this.filesPerDevice = filesPerDevice;
+    }
+
+    /**
+     * Hands every satellite, then every device, then every file to the sink, always in the same order.
+     */
+    public <E extends Exception> void generate(Sink<E> sink) throws E {
+        Random random = new Random(seed);
+        for (String type : SATELLITE_TYPES) {
+            for (int i = 0; i < satellitesPerType; i++) {
+                double height = RADIUS_OF_JUPITER + MIN_HEIGHT + random.nextDouble() * (MAX_HEIGHT - MIN_HEIGHT);
+                double degrees = type.equals("RelaySatellite")
+                        ? RELAY_BAND_LOW + random.nextDouble() * (RELAY_BAND_HIGH - RELAY_BAND_LOW)
+                        : random.nextDouble() * 360;
+                sink.satellite(type + i, type, height, Angle.fromDegrees(degrees));
+            }
+        }
+        for (String type : DEVICE_TYPES) {
+            for (int i = 0; i < devicesPerType; i++) {
+                sink.device(type + i, type, Angle.fromDegrees(random.nextDouble() * 360), false);
+            }
+        }
+        for (String type : DEVICE_TYPES) {
+            for (int i = 0; i < devicesPerType; i++) {
+                for (int file = 0; file < filesPerDevice; file++) {
+                    sink.file(type + i, "File" + file, content(random));
+                }
+            }
+        }
+    }
+
+    /*
+     * Random letters and spaces; one file in four has no t in it at all.
+     */
+    private static String content(Random random) {
+        int size = MIN_FILE_SIZE + random.nextInt(MAX_FILE_SIZE - MIN_FILE_SIZE + 1);
+        boolean withoutT = random.nextInt(4) == 0;
+        StringBuilder content = new StringBuilder(size);
+        while (content.length() < size) {
+            char letter = LETTERS.charAt(random.nextInt(LETTERS.length()));
+            if (withoutT && letter == 't') continue;
+            content.append(letter);
+        }
+        return content.toString();
+    }
+
+    /**
+     * The whole scenario as a batch, ready to be loaded in one go.
+     */
+    public EntityBatch toBatch() {
+        EntityBatch batch = new EntityBatch();
+        this.generate(new Sink<RuntimeException>() {
+            @Override
+            public void satellite(String id, String type, double height, Angle position) {
+                batch.addSatellite(id, type, height, position);
+            }
+
+            @Override
+            public void device(String id, String type, Angle position, boolean isMoving) {
+                batch.addDevice(id, type, position, isMoving);
+            }
+
+            @Override
+            public void file(String deviceId, String filename, String content) {
+                batch.addFile(deviceId, filename, content);
+            }
+        });
+        return batch;
+    }
+
+    /**
+     * Writes the whole scenario in the form {@link ScenarioReader} reads.
+     */
+    public void write(Writer out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("satellites").beginArray();
+        this.generate(new Sink<IOException>() {
+            private boolean inDevices = false;
+            private boolean inFiles = false;
+
+            @Override
+            public void satellite(String id, String type, double height, Angle position) throws IOException {
+                writer.beginObject().name("id").value(id).name("type").value(type).name("height").value(height)
+                      .name("position").value(position.toRadians()).endObject();
+            }
+
+            @Override
+            public void device(String id, String type, Angle position, boolean isMoving) throws IOException {
+                if (!inDevices) writer.endArray().name("devices").beginArray();
+                inDevices = true;
+                writer.beginObject().name("id").value(id).name("type").value(type)
+                      .name("position").value(position.toRadians()).name("isMoving").value(isMoving).endObject();
+            }
+
+            @Override
+            public void file(String deviceId, String filename, String content) throws IOException {
+                if (!inFiles) writer.endArray().name("files").beginArray();
+                inFiles = true;
+                writer.beginObject().name("deviceId").value(deviceId).name("filename").value(filename)
+                      .name("content").value(content).endObject();
+            }
+        });
+        writer.endArray();
+        writer.endObject();
+        writer.flush();
+    }
+
+    /**
+     * Where a generated scenario goes, one entity or file at a time.
+     */
+    public interface Sink<E extends Exception> {
+        void satellite(String id, String type, double height, Angle position) throws E;
+
+        void device(String id, String type, Angle position, boolean isMoving) throws E;
+
+        void file(String deviceId, String filename, String content) throws E;
+    }
+}
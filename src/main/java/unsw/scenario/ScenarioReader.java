@@ -0,0 +1,155 @@
+package unsw.scenario;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import unsw.blackout.EntityBatch;
+import unsw.utils.Angle;
+
+/**
+ * Reads a scenario straight off a stream into an {@link EntityBatch}, without building a tree
+ * of the whole document first. Positions are in radians, as everywhere else in the API:
+ * <pre>
+ * {"satellites": [{"id": "Satellite1", "type": "StandardSatellite", "height": 80000, "position": 1.5}],
+ *  "devices": [{"id": "DeviceA", "type": "HandheldDevice", "position": 0.5, "isMoving": false}],
+ *  "files": [{"deviceId": "DeviceA", "filename": "FileAlpha", "content": "Hello World"}]}
+ * </pre>
+ * Any section may be left out, and fields this does not know about are skipped.
+ */
+public final class ScenarioReader {
+    private ScenarioReader() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the scenario is not valid JSON of the shape above
+     */
+    public static EntityBatch read(Reader in) {
+        EntityBatch batch = new EntityBatch();
+        try {
+            JsonReader reader = new JsonReader(in);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "satellites": readArray(reader, () -> readSatellite(reader, batch)); break;
+                    case "devices": readArray(reader, () -> readDevice(reader, batch)); break;
+                    case "files": readArray(reader, () -> readFile(reader, batch)); break;
+                    default: reader.skipValue(); break;
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException e) {
+            throw new IllegalArgumentException("Invalid scenario: " + e.getMessage(), e);
+        }
+        return batch;
+    }
+
+    private interface Element {
+        void read() throws IOException;
+    }
+
+    private static void readArray(JsonReader reader, Element element) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) element.read();
+        reader.endArray();
+    }
+
+    private static void readSatellite(JsonReader reader, EntityBatch batch) throws IOException {
+        String id = null;
+        String type = null;
+        Double height = Double.NaN;
+        Double position = Double.NaN;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id": id = nextString(reader); break;
+                case "type": type = nextString(reader); break;
+                case "height": height = nextNumber(reader); break;
+                case "position": position = nextNumber(reader); break;
+                default: reader.skipValue(); break;
+            }
+        }
+        reader.endObject();
+        requireNumber(id, "height", height);
+        requireNumber(id, "position", position);
+        batch.addSatellite(id, type, height, Angle.fromRadians(position));
+    }
+
+    private static void readDevice(JsonReader reader, EntityBatch batch) throws IOException {
+        String id = null;
+        String type = null;
+        Double position = Double.NaN;
+        Boolean isMoving = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id": id = nextString(reader); break;
+                case "type": type = nextString(reader); break;
+                case "position": position = nextNumber(reader); break;
+                case "isMoving": isMoving = nextBoolean(reader); break;
+                default: reader.skipValue(); break;
+            }
+        }
+        reader.endObject();
+        requireNumber(id, "position", position);
+        if (isMoving == null) throw new IllegalArgumentException(describe(id) + ": isMoving must be true or false");
+        batch.addDevice(id, type, Angle.fromRadians(position), isMoving);
+    }
+
+    private static void readFile(JsonReader reader, EntityBatch batch) throws IOException {
+        String deviceId = null;
+        String filename = null;
+        String content = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "deviceId": deviceId = nextString(reader); break;
+                case "filename": filename = nextString(reader); break;
+                case "content": content = nextString(reader); break;
+                default: reader.skipValue(); break;
+            }
+        }
+        reader.endObject();
+        batch.addFile(deviceId, filename, content);
+    }
+
+    /*
+     * Numbers and booleans of the wrong kind come back as null rather than failing on the spot,
+     * so the error can name the entity even when its ID comes later in the object.
+     */
+    private static Double nextNumber(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token != JsonToken.NUMBER && token != JsonToken.STRING) {
+            reader.skipValue();
+            return null;
+        }
+        try {
+            double value = Double.parseDouble(reader.nextString());
+            return Double.isFinite(value) ? value : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Boolean nextBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.BOOLEAN) return reader.nextBoolean();
+        reader.skipValue();
+        return null;
+    }
+
+    private static void requireNumber(String id, String field, Double value) {
+        if (value == null) throw new IllegalArgumentException(describe(id) + ": " + field + " must be a number");
+    }
+
+    private static String describe(String id) {
+        return id == null ? "entity with no ID" : "entity " + id;
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.NULL) return reader.nextString();
+        reader.nextNull();
+        return null;
+    }
+}
@@ -0,0 +1,10 @@
+package unsw.session;
+
+/**
+ * Thrown when a change would take a session over one of its quotas. Nothing has been changed.
+ */
+public class QuotaExceededException extends RuntimeException {
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,163 @@
+package unsw.session;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Advances one session's simulation on its own, at a fixed rate or as fast as possible.
+ *
+ * Every clock shares one scheduler, and each has at most one run waiting on it at a time, so a
+ * session can never queue up more work than one run's worth. A run never waits for the session's
+ * write lock: if anyone else is writing it tries again shortly. A clock that falls behind makes
+ * up at most {@link #MAX_CATCH_UP} ticks at once and drops the rest, so the session runs slower
+ * than real time rather than hogging the scheduler. A clock running as fast as possible does
+ * a few milliseconds of ticks per run and then goes to the back of the queue.
+ *
+ * A running clock pins its session, since a session left to run on its own gets no requests.
+ */
+public class SessionClock {
+    private static final String PREFIX = "blackout:";
+    private static final long SLICE_NANOS = 20_000_000;
+    private static final long RETRY_NANOS = 1_000_000;
+    public static final int MAX_CATCH_UP = 50;
+
+    private final ScheduledExecutorService scheduler;
+    private final SessionState state;
+    // The clock's current run of ticks, or null while stopped
+    private Ticker ticker;
+    private ScheduledFuture<?> next;
+    private final AtomicLong droppedTicks = new AtomicLong();
+
+    public SessionClock(ScheduledExecutorService scheduler, SessionState state) {
+        this.scheduler = scheduler;
+        this.state = state;
+    }
+
+    /**
+     * A scheduler for clocks to share, with blackout:CLOCK_THREADS threads (default: half the processors).
+     */
+    public static ScheduledExecutorService newScheduler() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        try {
+            threads = Integer.parseInt(System.getenv(PREFIX + "CLOCK_THREADS"));
+        } catch (Exception e) {
+            // Keep the default
+        }
+        AtomicLong threadNumber = new AtomicLong(1);
+        return Executors.newScheduledThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "session-clock-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts the clock, or changes its rate if it is already running.
+     *
+     * @param periodMillis real time between ticks, or 0 to tick as fast as possible
+     */
+    public synchronized void start(long periodMillis) {
+        this.stop();
+        state.pin();
+        ticker = new Ticker(TimeUnit.MILLISECONDS.toNanos(Math.max(0, periodMillis)));
+        next = scheduler.schedule(ticker, ticker.period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the clock. A run already under way finishes but is not followed by another.
+     */
+    public synchronized void stop() {
+        if (next != null) next.cancel(false);
+        if (ticker != null) state.unpin();
+        ticker = null;
+        next = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return ticker != null;
+    }
+
+    /**
+     * Real time between ticks, 0 if running as fast as possible, or -1 if stopped.
+     */
+    public synchronized long getPeriodMillis() {
+        return (ticker == null) ? -1 : TimeUnit.NANOSECONDS.toMillis(ticker.period);
+    }
+
+    /**
+     * Ticks skipped so far because the clock fell too far behind.
+     */
+    public long getDroppedTicks() {
+        return droppedTicks.get();
+    }
+
+    /*
+     * Schedules the ticker's next run, unless the clock was stopped or restarted meanwhile.
+     */
+    private synchronized void reschedule(Ticker from, long delayNanos) {
+        if (ticker != from) return;
+        next = scheduler.schedule(from, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private class Ticker implements Runnable {
+        private final long period;
+        private long nextTick;
+
+        Ticker(long period) {
+            this.period = period;
+            this.nextTick = System.nanoTime() + period;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long delay = (period == 0) ? this.runFlatOut() : this.runDue();
+                reschedule(this, delay);
+            } catch (RuntimeException e) {
+                System.err.println("Session clock stopped: " + e);
+                synchronized (SessionClock.this) {
+                    if (ticker == this) stop();
+                }
+            }
+        }
+
+        private long runFlatOut() {
+            boolean ran = state.tryWrite(controller -> {
+                long sliceEnd = System.nanoTime() + SLICE_NANOS;
+                do {
+                    controller.simulate();
+                } while (System.nanoTime() < sliceEnd);
+                state.publishAfterWrite();
+                return null;
+            });
+            return ran ? 0 : RETRY_NANOS;
+        }
+
+        /*
+         * Runs every tick that has come due, returning how long until the next one.
+         */
+        private long runDue() {
+            long now = System.nanoTime();
+            if (now < nextTick) return nextTick - now;
+
+            long due = (now - nextTick) / period + 1;
+            if (due > MAX_CATCH_UP) {
+                droppedTicks.addAndGet(due - MAX_CATCH_UP);
+                nextTick += (due - MAX_CATCH_UP) * period;
+                due = MAX_CATCH_UP;
+            }
+            int ticks = (int) due;
+            boolean ran = state.tryWrite(controller -> {
+                for (int i = 0; i < ticks; i++) controller.simulate();
+                return null;
+            });
+            if (!ran) return RETRY_NANOS;
+
+            nextTick += ticks * period;
+            return Math.max(0, nextTick - System.nanoTime());
+        }
+    }
+}
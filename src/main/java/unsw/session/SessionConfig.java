@@ -0,0 +1,75 @@
+package unsw.session;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Limits on how many sessions are kept and how much each one may hold.
+ *
+ * Read from the environment by {@link #fromEnvironment()}, with a zero or missing value meaning
+ * no limit. Sessions are only ever evicted when one of the first two is set:
+ * <pre>
+ * blackout:SESSION_IDLE_MINUTES  sessions untouched for this long are evicted
+ * blackout:MAX_SESSIONS          the least recently used session is evicted beyond this
+ * blackout:MAX_ENTITIES          devices and satellites per session
+ * blackout:MAX_FILE_BYTES        bytes of files stored per session
+ * blackout:SPILL_DIR             evicted sessions are written here and restored on return
+ * </pre>
+ */
+public class SessionConfig {
+    private static final String PREFIX = "blackout:";
+
+    private final long idleMillis;
+    private final int maxSessions;
+    private final int maxEntities;
+    private final long maxFileBytes;
+    private final Path spillDirectory;
+
+    /**
+     * @param idleMillis how long a session may go untouched, or 0 for as long as it likes
+     * @param maxSessions sessions kept at once, or 0 for no limit
+     * @param spillDirectory where evicted sessions are written, or null to simply drop them
+     */
+    public SessionConfig(long idleMillis, int maxSessions, int maxEntities, long maxFileBytes, Path spillDirectory) {
+        this.idleMillis = idleMillis;
+        this.maxSessions = maxSessions;
+        this.maxEntities = maxEntities;
+        this.maxFileBytes = maxFileBytes;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public static SessionConfig fromEnvironment() {
+        String spill = System.getenv(PREFIX + "SPILL_DIR");
+        return new SessionConfig(getLong("SESSION_IDLE_MINUTES", 0) * 60_000, (int) getLong("MAX_SESSIONS", 0),
+                                 (int) getLong("MAX_ENTITIES", 0), getLong("MAX_FILE_BYTES", 0),
+                                 (spill == null) ? null : Paths.get(spill));
+    }
+
+    private static long getLong(String name, long orElse) {
+        try {
+            return Long.parseLong(System.getenv(PREFIX + name));
+        } catch (Exception e) {
+            return orElse;
+        }
+    }
+
+    public long getIdleMillis() {
+        return idleMillis;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public int getMaxEntities() {
+        return maxEntities;
+    }
+
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+}
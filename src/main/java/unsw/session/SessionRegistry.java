@@ -0,0 +1,344 @@
+package unsw.session;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import unsw.blackout.BlackoutController;
+import unsw.metrics.TickMetrics;
+import unsw.response.models.EntityInfoResponse;
+
+/**
+ * Every session's simulation by HTTP session ID, evicting those that are idle or least recently used.
+ *
+ * Looking up a session that is in memory only stamps it with the time and the order it was used
+ * in. Every so often, and whenever there are more sessions than the maximum, one lookup scans for
+ * sessions untouched for longer than the idle limit and then the least recently used ones beyond
+ * the maximum, while other lookups carry on. Either limit can be left at 0 to turn it off.
+ *
+ * With a spill directory set, an evicted session is written out on a background thread and read
+ * back the next time it is asked for. Until it has been written out, asking for it simply takes
+ * it back. Only the lookups of a session being read back or started wait for it, and they share
+ * the one read. Transfers still in flight do not survive being written out.
+ */
+public class SessionRegistry {
+    // How often the idle limit is checked, as a fraction of it
+    private static final int SCANS_PER_IDLE_LIMIT = 10;
+
+    private final SessionConfig config;
+    private final LongSupplier clock;
+    private final Gson gson = new Gson();
+
+    private final Map<String, Entry> live = new ConcurrentHashMap<>();
+    // Sessions being read back from disk or started, so each is only done once
+    private final Map<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    // Evicted sessions waiting to be written out
+    private final Map<String, SessionState> spilling = new ConcurrentHashMap<>();
+    private final AtomicLong lastUse = new AtomicLong();
+    private final AtomicBoolean scanning = new AtomicBoolean();
+    private volatile long nextScan = Long.MIN_VALUE;
+    private final ExecutorService spiller;
+    private final List<Consumer<String>> evictionListeners = new CopyOnWriteArrayList<>();
+    private volatile TickMetrics metrics;
+
+    public SessionRegistry(SessionConfig config) {
+        this(config, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock the current time in milliseconds
+     */
+    public SessionRegistry(SessionConfig config, LongSupplier clock) {
+        this.config = config;
+        this.clock = clock;
+        this.spiller = (config.getSpillDirectory() == null) ? null : Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "session-spill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Gets a session, bringing it back from disk or starting a new one if need be.
+     */
+    public SessionState get(String id) {
+        return this.lookup(id, true);
+    }
+
+    /**
+     * Gets a session if it exists, in memory or on disk, or null otherwise.
+     */
+    public SessionState find(String id) {
+        return this.lookup(id, false);
+    }
+
+    /**
+     * Registers a listener that is told the ID of every session as it is evicted.
+     */
+    public void addEvictionListener(Consumer<String> listener) {
+        evictionListeners.add(listener);
+    }
+
+    /**
+     * Times every session started or brought back from now on into the given metrics, or none if null.
+     */
+    public void setTickMetrics(TickMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public int getNumberOfSessions() {
+        return live.size();
+    }
+
+    private SessionState lookup(String id, boolean create) {
+        long now = clock.getAsLong();
+        SessionState state = this.touch(live.get(id), now);
+        if (state == null) state = this.load(id, create, now);
+        this.evictIfDue(now);
+        return state;
+    }
+
+    /*
+     * Marks a session as used, or returns null if it has been evicted since it was looked up.
+     */
+    private SessionState touch(Entry entry, long now) {
+        if (entry == null) return null;
+        synchronized (entry) {
+            if (entry.evicted) return null;
+            entry.lastAccess = now;
+            entry.lastUse = lastUse.incrementAndGet();
+            return entry.state;
+        }
+    }
+
+    /*
+     * Takes a session back from those waiting to be spilled, reads it back from disk, or starts a
+     * new one. Only one lookup of a session does this at a time, and the others wait for it.
+     */
+    private SessionState load(String id, boolean create, long now) {
+        while (true) {
+            CompletableFuture<Entry> mine = new CompletableFuture<>();
+            CompletableFuture<Entry> running = loading.putIfAbsent(id, mine);
+            if (running != null) {
+                SessionState state = this.touch(running.join(), now);
+                if (state != null || !create) return state;
+                continue;
+            }
+
+            Entry entry = null;
+            try {
+                SessionState state = this.touch(live.get(id), now);
+                if (state != null) return state;
+
+                state = spilling.remove(id);
+                if (state == null) state = this.readSpill(id);
+                if (state == null && create) state = this.newState(new BlackoutController());
+                if (state == null) return null;
+                entry = new Entry(state);
+                state = this.touch(entry, now);
+                live.put(id, entry);
+                return state;
+            } finally {
+                mine.complete(entry);
+                loading.remove(id, mine);
+            }
+        }
+    }
+
+    /*
+     * Scans for sessions to evict if one is due and no other lookup is already scanning.
+     */
+    private void evictIfDue(long now) {
+        boolean tooMany = config.getMaxSessions() > 0 && live.size() > config.getMaxSessions();
+        boolean idleCheckDue = config.getIdleMillis() > 0 && now >= nextScan;
+        if (!tooMany && !idleCheckDue) return;
+        if (!scanning.compareAndSet(false, true)) return;
+
+        Map<String, SessionState> evicted = new LinkedHashMap<>();
+        try {
+            nextScan = now + Math.max(1, config.getIdleMillis() / SCANS_PER_IDLE_LIMIT);
+            this.evict(now, evicted);
+        } finally {
+            scanning.set(false);
+        }
+
+        // Listeners and spilling may take a while, so they run once the scan is over
+        for (Map.Entry<String, SessionState> each : evicted.entrySet()) {
+            for (Consumer<String> listener : evictionListeners) listener.accept(each.getKey());
+            if (spiller != null) spiller.execute(() -> this.spill(each.getKey(), each.getValue()));
+        }
+    }
+
+    /*
+     * Evicts idle sessions, then the least recently used while there are still too many.
+     * Pinned sessions are always kept, even if that leaves more than the maximum.
+     */
+    private void evict(long now, Map<String, SessionState> evicted) {
+        // Every use has its own stamp, so none of them clash
+        TreeMap<Long, Map.Entry<String, Entry>> byLastUse = new TreeMap<>();
+        for (Map.Entry<String, Entry> each : live.entrySet()) {
+            if (!this.tryEvict(each.getKey(), each.getValue(), now, evicted)) {
+                byLastUse.put(each.getValue().lastUse, each);
+            }
+        }
+
+        int excess = (config.getMaxSessions() > 0) ? live.size() - config.getMaxSessions() : 0;
+        for (Map.Entry<String, Entry> each : byLastUse.values()) {
+            if (excess <= 0) break;
+            if (this.tryEvict(each.getKey(), each.getValue(), -1, evicted)) excess--;
+        }
+    }
+
+    /*
+     * Evicts a session, if it has been idle as of the given time or that is -1, and it is not pinned. It joins the
+     * sessions waiting to be spilled before it is marked evicted, so a lookup that sees it has
+     * gone always finds it there.
+     */
+    private boolean tryEvict(String id, Entry entry, long now, Map<String, SessionState> evicted) {
+        synchronized (entry) {
+            if (entry.evicted || entry.state.isPinned()) return false;
+            if (now != -1 && (config.getIdleMillis() <= 0 || now - entry.lastAccess <= config.getIdleMillis())) {
+                return false;
+            }
+            if (spiller != null) spilling.put(id, entry.state);
+            entry.evicted = true;
+        }
+        live.remove(id, entry);
+        evicted.put(id, entry.state);
+        return true;
+    }
+
+    private SessionState newState(BlackoutController controller) {
+        controller.setMetrics(metrics);
+        return new SessionState(controller, config.getMaxEntities(), config.getMaxFileBytes());
+    }
+
+    /*
+     * Writes the session out under its write lock, so any write still running finishes first.
+     * It goes to a temporary file that only takes the session's place if the session was not
+     * taken back in the meantime, so a half written or out of date file is never read. The move
+     * happens while the session leaves the sessions waiting to be spilled, so a lookup finds it
+     * in one or the other.
+     */
+    private void spill(String id, SessionState state) {
+        Path path = this.spillPath(id);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            state.write(controller -> {
+                SpilledSession spilled = new SpilledSession();
+                spilled.tick = controller.getCurrentTick();
+                for (String each : controller.listSatelliteIds()) {
+                    spilled.satellites.add(controller.getInfo(each));
+                    spilled.clockwise.put(each, controller.isClockwise(each));
+                }
+                for (String each : controller.listDeviceIds()) spilled.devices.add(controller.getInfo(each));
+                Files.createDirectories(path.getParent());
+                try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                    gson.toJson(spilled, out);
+                }
+                return null;
+            });
+            AtomicBoolean moved = new AtomicBoolean();
+            spilling.computeIfPresent(id, (key, waiting) -> {
+                if (waiting != state) return waiting;
+                try {
+                    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    moved.set(true);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+            if (moved.get()) return;
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Failed to spill session " + id + ": " + e.getMessage());
+            spilling.remove(id, state);
+        }
+        this.deleteSpill(temporary);
+    }
+
+    /*
+     * Called by the one lookup loading the session. A spilled session is only ever read back once.
+     */
+    private SessionState readSpill(String id) {
+        if (config.getSpillDirectory() == null) return null;
+        Path path = this.spillPath(id);
+        if (!Files.exists(path)) return null;
+
+        SpilledSession spilled = null;
+        try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            spilled = gson.fromJson(in, SpilledSession.class);
+        } catch (IOException | JsonParseException e) {
+            System.err.println("Failed to restore session " + id + ": " + e.getMessage());
+        }
+        this.deleteSpill(path);
+        if (spilled == null) return null;
+        return this.newState(BlackoutController.restore(spilled.tick, spilled.satellites, spilled.devices,
+                                                              spilled.clockwise));
+    }
+
+    private void deleteSpill(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Failed to delete " + path + ": " + e.getMessage());
+        }
+    }
+
+    /*
+     * Session IDs are chosen by the server, but anything that is not safe in a file name is
+     * replaced anyway.
+     */
+    private Path spillPath(String id) {
+        return config.getSpillDirectory().resolve(id.replaceAll("[^A-Za-z0-9_-]", "_") + ".json");
+    }
+
+    /*
+     * A session in memory, stamped with when it was last used and in what order. Both stamps and
+     * the evicted flag are only changed while holding the entry's lock.
+     */
+    private static class Entry {
+        private final SessionState state;
+        private volatile long lastAccess;
+        private volatile long lastUse;
+        private boolean evicted = false;
+
+        Entry(SessionState state) {
+            this.state = state;
+        }
+    }
+
+    /*
+     * What is written to disk for an evicted session.
+     */
+    private static class SpilledSession {
+        private long tick;
+        private List<EntityInfoResponse> satellites = new ArrayList<>();
+        private List<EntityInfoResponse> devices = new ArrayList<>();
+        // Not part of a satellite's info, but needed for it to carry on the same way
+        private Map<String, Boolean> clockwise = new HashMap<>();
+    }
+}
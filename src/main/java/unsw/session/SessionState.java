@@ -0,0 +1,232 @@
+package unsw.session;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import unsw.blackout.BlackoutController;
+import unsw.blackout.EntityBatch;
+import unsw.blackout.WorldSnapshot;
+import unsw.metrics.WriteWaitEvent;
+import unsw.response.ResponseCache;
+
+/**
+ * One session's simulation, with reads kept apart from writes.
+ *
+ * Anything that changes the simulation goes through {@link #write}, one writer at a time.
+ * Reads are served from the last published {@link WorldSnapshot} and never wait for a writer:
+ * if the snapshot is out of date and no writer is busy, the reader publishes a fresh one itself;
+ * if a writer is busy, the reader gets the last published snapshot and the writer publishes a
+ * fresh one at the end of its next tick, or at the end of the write if that comes first.
+ *
+ * How much the session holds is counted again after every write, and routes that add entities or
+ * files check their quota first with {@link #checkCanCreate} and {@link #checkCanStore}.
+ *
+ * Each state has a random epoch, so that versions of a session that was started again or brought
+ * back from disk are never mistaken for versions of the one before it.
+ */
+public class SessionState {
+    private final BlackoutController controller;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final ResponseCache responses = new ResponseCache();
+    // Things running on the session by themselves, which keep it from being evicted
+    private final AtomicInteger pins = new AtomicInteger();
+
+    // Stale once the simulation's version has moved past it
+    private volatile WorldSnapshot published;
+    // Set by a reader that had to make do with a stale snapshot while a writer was busy
+    private volatile boolean snapshotWanted = false;
+
+    // Quotas, zero for no limit, and what was held as of the last write
+    private final int maxEntities;
+    private final long maxFileBytes;
+    private volatile int numberOfEntities;
+    private volatile long storedFileBytes;
+
+    public SessionState(BlackoutController controller) {
+        this(controller, 0, 0);
+    }
+
+    public SessionState(BlackoutController controller, int maxEntities, long maxFileBytes) {
+        this.controller = controller;
+        this.maxEntities = maxEntities;
+        this.maxFileBytes = maxFileBytes;
+        this.published = controller.snapshot();
+        this.countUsage();
+        controller.addTickListener(this::publishIfWanted);
+    }
+
+    /**
+     * Runs something that changes the simulation, holding the write lock throughout.
+     */
+    public <T, E extends Exception> T write(Write<T, E> action) throws E {
+        if (!writeLock.tryLock()) {
+            // Only a wait that actually happens is worth recording
+            WriteWaitEvent event = new WriteWaitEvent();
+            event.begin();
+            writeLock.lock();
+            event.record(epoch);
+        }
+        return this.writeLocked(action);
+    }
+
+    /**
+     * Runs something that changes the simulation only if no one else is writing.
+     *
+     * @return whether it ran
+     */
+    public <E extends Exception> boolean tryWrite(Write<?, E> action) throws E {
+        if (!writeLock.tryLock()) return false;
+        this.writeLocked(action);
+        return true;
+    }
+
+    /*
+     * Called with the write lock held, and releases it.
+     */
+    private <T, E extends Exception> T writeLocked(Write<T, E> action) throws E {
+        try {
+            return action.apply(controller);
+        } finally {
+            this.countUsage();
+            this.publishIfWanted();
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes a fresh snapshot at the end of the current write even if no reader has asked for one.
+     * Only for use inside {@link #write}.
+     */
+    public void publishAfterWrite() {
+        snapshotWanted = true;
+    }
+
+    private void countUsage() {
+        numberOfEntities = controller.getNumberOfEntities();
+        storedFileBytes = controller.getStoredFileBytes();
+    }
+
+    /**
+     * Checks that an entity with the given ID can be created. Replacing an existing one is always allowed.
+     * Only for use inside {@link #write}.
+     */
+    public void checkCanCreate(String id) {
+        if (maxEntities <= 0 || controller.getInfo(id) != null) return;
+        if (controller.getNumberOfEntities() >= maxEntities) {
+            throw new QuotaExceededException("Session is limited to " + maxEntities + " entities");
+        }
+    }
+
+    /**
+     * Checks that files of the given size can be stored on top of what is already held.
+     * Only for use inside {@link #write}.
+     */
+    public void checkCanStore(long bytes) {
+        if (maxFileBytes <= 0) return;
+        if (controller.getStoredFileBytes() + bytes > maxFileBytes) {
+            throw new QuotaExceededException("Session is limited to " + maxFileBytes + " bytes of files");
+        }
+    }
+
+    /**
+     * Checks that a whole batch fits, counting only the entities it adds rather than replaces.
+     * Only for use inside {@link #write}.
+     */
+    public void checkCanLoad(EntityBatch batch) {
+        if (maxEntities > 0) {
+            long added = batch.listIds().stream().distinct().filter(id -> controller.getInfo(id) == null).count();
+            if (controller.getNumberOfEntities() + added > maxEntities) {
+                throw new QuotaExceededException("Session is limited to " + maxEntities + " entities");
+            }
+        }
+        this.checkCanStore(batch.getFileBytes());
+    }
+
+    public int getNumberOfEntities() {
+        return numberOfEntities;
+    }
+
+    public long getStoredFileBytes() {
+        return storedFileBytes;
+    }
+
+    /**
+     * The latest snapshot that can be had without waiting for a writer.
+     */
+    public WorldSnapshot read() {
+        WorldSnapshot snapshot = published;
+        if (snapshot.getVersion() == controller.getVersion()) return snapshot;
+
+        if (!writeLock.tryLock()) {
+            snapshotWanted = true;
+            return snapshot;
+        }
+        try {
+            if (published.getVersion() != controller.getVersion()) this.publish();
+            return published;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /*
+     * Runs on the writing thread after every tick, and as every write ends.
+     */
+    private void publishIfWanted() {
+        if (!snapshotWanted) return;
+        snapshotWanted = false;
+        this.publish();
+    }
+
+    private void publish() {
+        published = controller.snapshot();
+    }
+
+    /**
+     * Tells this state's versions apart from those of any other state for the same session.
+     */
+    public String getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Keeps the session from being evicted until a matching {@link #unpin}, while something such
+     * as a job runs on it without any requests coming in.
+     */
+    public void pin() {
+        pins.incrementAndGet();
+    }
+
+    public void unpin() {
+        pins.decrementAndGet();
+    }
+
+    public boolean isPinned() {
+        return pins.get() > 0;
+    }
+
+    /**
+     * Responses already written for this session, by request and version.
+     */
+    public ResponseCache getResponseCache() {
+        return responses;
+    }
+
+    /**
+     * A change to the simulation, which may throw a checked exception back to the caller.
+     */
+    @FunctionalInterface
+    public interface Write<T, E extends Exception> {
+        T apply(BlackoutController controller) throws E;
+    }
+
+    /**
+     * The simulation itself. Only for use inside {@link #write}, or by code that runs on the
+     * writing thread such as tick listeners.
+     */
+    public BlackoutController getController() {
+        return controller;
+    }
+}
@@ -0,0 +1,142 @@
+package blackout;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import unsw.blackout.BlackoutController;
+import unsw.blackout.FileTransferException;
+import unsw.scenario.ScenarioGenerator;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Bytes allocated by the tick loop and range queries on fixed scenarios, counted by the JVM for
+ * the test's own thread. Each budget sits a few times above what is allocated today, so noise
+ * from the JIT does not trip it but a new allocation per entity or per tick does.
+ */
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class AllocationBudgetTests {
+    // Bytes per tick with nothing being transferred
+    private static final long IDLE_TICK_BUDGET = 512;
+    // Bytes per tick with a transfer in flight from every device
+    private static final long BUSY_TICK_BUDGET = 4 * 1024;
+    // Bytes per range query once the answer has been worked out this tick
+    private static final long RANGE_QUERY_BUDGET = 64;
+    // Bytes per tick followed by a range query from every device, which rebuilds connectivity
+    private static final long POLLED_TICK_BUDGET = 1024 * 1024;
+
+    private static final int WARM_UP = 500;
+    private static final int TICKS = 200;
+
+    private com.sun.management.ThreadMXBean threads;
+
+    @BeforeAll
+    public void enableCounting() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        // Sees one transfer through from start to finish, so classes first loaded when a transfer
+        // completes are not counted against whichever test is first to complete one
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", RADIUS_OF_JUPITER + 5000, Angle.fromDegrees(100));
+        controller.createDevice("DeviceA", "LaptopDevice", Angle.fromDegrees(100));
+        controller.addFileToDevice("DeviceA", "File0", "Hello");
+        assertTrue(trySend(controller, "DeviceA", "Satellite1"));
+        controller.simulate(10);
+    }
+
+    @Test
+    public void testIdleTick() {
+        BlackoutController controller = newWorld();
+        for (int i = 0; i < WARM_UP; i++) controller.simulate();
+
+        long before = allocated();
+        for (int i = 0; i < TICKS; i++) controller.simulate();
+        assertWithinBudget("idle tick", (allocated() - before) / TICKS, IDLE_TICK_BUDGET);
+    }
+
+    @Test
+    public void testBusyTick() {
+        BlackoutController controller = newWorld();
+        for (int i = 0; i < WARM_UP; i++) controller.simulate();
+        int started = 0;
+        for (String deviceId : controller.listDeviceIds()) {
+            for (String id : controller.communicableEntitiesInRange(deviceId)) {
+                if (trySend(controller, deviceId, id)) {
+                    started++;
+                    break;
+                }
+            }
+        }
+        assertTrue(started > 0);
+
+        // Few enough ticks that most transfers are still going at the end
+        long before = allocated();
+        for (int i = 0; i < 20; i++) controller.simulate();
+        assertWithinBudget("busy tick", (allocated() - before) / 20, BUSY_TICK_BUDGET);
+    }
+
+    @Test
+    public void testRangeQuery() {
+        BlackoutController controller = newWorld();
+        List<String> ids = controller.listSatelliteIds();
+        for (int i = 0; i < 20; i++) ids.forEach(controller::communicableEntitiesInRange);
+
+        long before = allocated();
+        for (int i = 0; i < 20; i++) ids.forEach(controller::communicableEntitiesInRange);
+        assertWithinBudget("range query", (allocated() - before) / (20 * ids.size()), RANGE_QUERY_BUDGET);
+    }
+
+    @Test
+    public void testPolledTick() {
+        BlackoutController controller = newWorld();
+        List<String> ids = controller.listDeviceIds();
+        for (int i = 0; i < 50; i++) {
+            controller.simulate();
+            ids.forEach(controller::communicableEntitiesInRange);
+        }
+
+        long before = allocated();
+        for (int i = 0; i < 20; i++) {
+            controller.simulate();
+            ids.forEach(controller::communicableEntitiesInRange);
+        }
+        assertWithinBudget("polled tick", (allocated() - before) / 20, POLLED_TICK_BUDGET);
+    }
+
+    /*
+     * 90 satellites and 60 devices, each holding one file.
+     */
+    private BlackoutController newWorld() {
+        BlackoutController controller = new BlackoutController();
+        controller.load(new ScenarioGenerator(7, 30, 20, 1).toBatch());
+        return controller;
+    }
+
+    private boolean trySend(BlackoutController controller, String deviceId, String toId) {
+        try {
+            controller.sendFile("File0", deviceId, toId);
+            return true;
+        } catch (FileTransferException e) {
+            return false;
+        }
+    }
+
+    private long allocated() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private void assertWithinBudget(String what, long bytes, long budget) {
+        assertTrue(bytes <= budget, what + " allocated " + bytes + " bytes, over its budget of " + budget);
+    }
+}
@@ -0,0 +1,75 @@
+package blackout;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import unsw.blackout.BlackoutController;
+import unsw.response.models.FileInfoResponse;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class FastForwardTests {
+    private static final String[] SATELLITE_TYPES = {"StandardSatellite", "TeleportingSatellite", "RelaySatellite"};
+    private static final int[] RUN_LENGTHS = {1, 2, 41, 250, 251, 252, 1000, 12345};
+
+    @Test
+    public void testJumpMatchesStepping() {
+        // Every satellite type, from positions all around the planet (including inside the relay band
+        // and right on its edges), should end up in the same place whether the minutes are stepped
+        // one at a time or jumped over in one call.
+        for (String type : SATELLITE_TYPES) {
+            for (int degrees = 0; degrees < 360; degrees += 5) {
+                for (int minutes : RUN_LENGTHS) {
+                    BlackoutController jumped = new BlackoutController();
+                    BlackoutController stepped = new BlackoutController();
+                    jumped.createSatellite("Satellite1", type, 100 + RADIUS_OF_JUPITER, Angle.fromDegrees(degrees));
+                    stepped.createSatellite("Satellite1", type, 100 + RADIUS_OF_JUPITER, Angle.fromDegrees(degrees));
+
+                    jumped.simulate(minutes);
+                    for (int i = 0; i < minutes; i++) stepped.simulate();
+                    assertSamePosition(stepped.getInfo("Satellite1").getPosition(),
+                                       jumped.getInfo("Satellite1").getPosition());
+
+                    // The direction each satellite is heading must carry over as well
+                    jumped.simulate(3);
+                    for (int i = 0; i < 3; i++) stepped.simulate();
+                    assertSamePosition(stepped.getInfo("Satellite1").getPosition(),
+                                       jumped.getInfo("Satellite1").getPosition());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTransfersAcrossJump() {
+        // A transfer in progress must make the same progress whether minutes are stepped or jumped
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", 10000 + RADIUS_OF_JUPITER,
+                                   Angle.fromDegrees(320));
+        controller.createDevice("DeviceC", "HandheldDevice", Angle.fromDegrees(320));
+
+        String msg = "Hey";
+        controller.addFileToDevice("DeviceC", "FileAlpha", msg);
+        assertDoesNotThrow(() -> controller.sendFile("FileAlpha", "DeviceC", "Satellite1"));
+
+        controller.simulate(2);
+        assertEquals(new FileInfoResponse("FileAlpha", "He", msg.length(), false),
+                     controller.getInfo("Satellite1").getFiles().get("FileAlpha"));
+
+        controller.simulate(1000);
+        assertEquals(new FileInfoResponse("FileAlpha", msg, msg.length(), true),
+                     controller.getInfo("Satellite1").getFiles().get("FileAlpha"));
+    }
+
+    private void assertSamePosition(Angle expected, Angle actual) {
+        double difference = Math.abs(expected.toRadians() - actual.toRadians());
+        difference = Math.min(difference, 2 * Math.PI - difference);
+        assertTrue(difference < 1e-6, "expected " + expected + " but was " + actual);
+    }
+}
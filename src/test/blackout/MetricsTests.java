@@ -0,0 +1,176 @@
+package blackout;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import unsw.blackout.BlackoutController;
+import unsw.blackout.FileTransferException;
+import unsw.metrics.LatencyHistogram;
+import unsw.metrics.RouteMetrics;
+import unsw.metrics.TickMetrics;
+import unsw.response.models.HistogramResponse;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class MetricsTests {
+    @Test
+    public void testBytesMovedMatchesTransfers() {
+        BlackoutController controller = new BlackoutController();
+        TickMetrics metrics = new TickMetrics();
+        controller.setMetrics(metrics);
+        controller.createSatellite("Satellite1", "StandardSatellite", RADIUS_OF_JUPITER + 5000,
+                                   Angle.fromDegrees(100));
+        controller.createDevice("DeviceA", "LaptopDevice", Angle.fromDegrees(100));
+        controller.createDevice("DeviceB", "HandheldDevice", Angle.fromDegrees(100));
+
+        // 7 bytes at 1 byte per minute, the last of them moved in the seventh minute
+        controller.addFileToDevice("DeviceA", "FileAlpha", "Hello!!");
+        assertDoesNotThrow(() -> controller.sendFile("FileAlpha", "DeviceA", "Satellite1"));
+        controller.simulate();
+        assertEquals(1L, counters(metrics).get("maxActiveTransfers"));
+        assertEquals(1L, counters(metrics).get("bytesMoved"));
+
+        controller.simulate(10);
+        assertEquals(7L, counters(metrics).get("bytesMoved"));
+
+        // Nothing more moves once the first has finished, until the next one starts
+        controller.addFileToDevice("DeviceB", "FileBeta", "0123456789");
+        assertDoesNotThrow(() -> controller.sendFile("FileBeta", "DeviceB", "Satellite1"));
+        controller.simulate(3);
+        assertEquals(10L, counters(metrics).get("bytesMoved"));
+        controller.simulate(20);
+        assertEquals(17L, counters(metrics).get("bytesMoved"));
+        assertEquals(4L, summary(metrics).get("ticks"));
+    }
+
+    @Test
+    public void testPhasesOnlyTimedWithMetrics() {
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "RelaySatellite", RADIUS_OF_JUPITER + 5000, Angle.fromDegrees(150));
+        controller.createDevice("DeviceA", "DesktopDevice", Angle.fromDegrees(150));
+        TickMetrics metrics = new TickMetrics();
+        controller.simulate();
+        controller.snapshot();
+
+        controller.setMetrics(metrics);
+        controller.simulate();
+        controller.simulate(5);
+        controller.communicableEntitiesInRange("DeviceA");
+        controller.snapshot();
+
+        controller.setMetrics(null);
+        controller.simulate();
+        controller.snapshot();
+
+        assertEquals(2L, summary(metrics).get("ticks"));
+        Map<?, ?> phases = (Map<?, ?>) summary(metrics).get("phases");
+        assertEquals(2, ((HistogramResponse) phases.get("positions")).getCount());
+        assertEquals(2, ((HistogramResponse) phases.get("transfers")).getCount());
+        assertEquals(1, ((HistogramResponse) phases.get("connectivity")).getCount());
+        assertEquals(1, ((HistogramResponse) phases.get("snapshot")).getCount());
+        assertEquals(1L, counters(metrics).get("rangeChecks"));
+    }
+
+    @Test
+    public void testHistogramQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.quantileMicros(0.5));
+        for (int i = 0; i < 90; i++) histogram.record(3_000);
+        for (int i = 0; i < 10; i++) histogram.record(900_000);
+
+        HistogramResponse summary = histogram.summarise();
+        assertEquals(100, summary.getCount());
+        assertEquals(92.7, summary.getMeanMicros(), 1e-9);
+        // Reported as the upper bound of the bucket they land in
+        assertEquals(4, summary.getP50Micros());
+        assertEquals(4, summary.getP90Micros());
+        assertEquals(900, summary.getP99Micros());
+        assertEquals(900, summary.getMaxMicros());
+    }
+
+    @Test
+    public void testRoutesBeyondLimitGrouped() {
+        RouteMetrics routes = new RouteMetrics();
+        for (int i = 0; i < RouteMetrics.MAX_ROUTES + 10; i++) routes.record("GET", "/api/entity/" + i, 1000);
+        routes.record("GET", "/api/entity/0", 1000);
+
+        Map<String, HistogramResponse> summary = routes.summarise();
+        assertEquals(RouteMetrics.MAX_ROUTES + 1, summary.size());
+        assertEquals(2, summary.get("GET /api/entity/0").getCount());
+        assertTrue(summary.containsKey(RouteMetrics.OTHER));
+        assertEquals(10, summary.get(RouteMetrics.OTHER).getCount());
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws IOException {
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", RADIUS_OF_JUPITER + 5000,
+                                   Angle.fromDegrees(100));
+        controller.createDevice("DeviceA", "LaptopDevice", Angle.fromDegrees(100));
+        controller.addFileToDevice("DeviceA", "FileAlpha", "Hello");
+
+        Path dump = Files.createTempFile("blackout", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] {"Simulate", "SendFile", "TransferEnded"}) {
+                recording.enable("unsw.blackout." + name).withoutThreshold();
+            }
+            recording.start();
+            assertDoesNotThrow(() -> controller.sendFile("FileAlpha", "DeviceA", "Satellite1"));
+            assertThrows(FileTransferException.VirtualFileNoBandwidthException.class,
+                         () -> controller.sendFile("FileAlpha", "DeviceA", "Satellite1"));
+            controller.simulate(10);
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+            List<RecordedEvent> sends = named(events, "unsw.blackout.SendFile");
+            assertEquals(2, sends.size());
+            assertEquals(null, sends.get(0).getString("refused"));
+            assertEquals("VirtualFileNoBandwidthException", sends.get(1).getString("refused"));
+
+            List<RecordedEvent> ended = named(events, "unsw.blackout.TransferEnded");
+            assertEquals(1, ended.size());
+            assertEquals("Satellite1", ended.get(0).getString("toId"));
+            assertEquals(5, ended.get(0).getLong("bytesSent"));
+            assertTrue(ended.get(0).getBoolean("completed"));
+
+            List<RecordedEvent> ticks = named(events, "unsw.blackout.Simulate");
+            assertEquals(1, ticks.size());
+            assertEquals(10, ticks.get(0).getInt("minutes"));
+            assertEquals(5, ticks.get(0).getLong("bytesMoved"));
+        } finally {
+            Files.delete(dump);
+        }
+    }
+
+    private List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name))
+                     .collect(Collectors.toList());
+    }
+
+    private Map<?, ?> summary(TickMetrics metrics) {
+        return metrics.summarise();
+    }
+
+    private Map<?, ?> counters(TickMetrics metrics) {
+        return (Map<?, ?>) metrics.summarise().get("counters");
+    }
+}
@@ -0,0 +1,96 @@
+package blackout;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import unsw.blackout.BlackoutController;
+import unsw.blackout.FileTransferException;
+import unsw.response.models.EntityInfoResponse;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class ParallelSimulationTests {
+    private static final String[] SATELLITE_TYPES = {"StandardSatellite", "TeleportingSatellite", "RelaySatellite"};
+    private static final String[] DEVICE_TYPES = {"HandheldDevice", "LaptopDevice", "DesktopDevice"};
+
+    @Test
+    public void testParallelMatchesSequential() {
+        // Builds the same large world twice, runs one sequentially and one on a fork-join pool,
+        // and checks every position and file is bit-for-bit identical after a long run.
+        BlackoutController sequential = new BlackoutController();
+        BlackoutController parallel = new BlackoutController();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        parallel.setSimulationPool(pool);
+
+        createWorld(sequential, 2000, 800);
+        createWorld(parallel, 2000, 800);
+
+        Random random = new Random(2511);
+        for (int minute = 0; minute < 1000; minute++) {
+            if (minute % 10 == 0) {
+                // Start the same transfers in both worlds
+                String device = "Device" + random.nextInt(800);
+                String satellite = "Satellite" + random.nextInt(2000);
+                assertEquals(trySend(sequential, "File" + device, device, satellite),
+                             trySend(parallel, "File" + device, device, satellite));
+            }
+            sequential.simulate();
+            parallel.simulate();
+        }
+        pool.shutdown();
+
+        assertWorldsIdentical(sequential, parallel);
+    }
+
+    private void createWorld(BlackoutController controller, int numberOfSatellites, int numberOfDevices) {
+        Random random = new Random(1531);
+        for (int i = 0; i < numberOfSatellites; i++) {
+            controller.createSatellite("Satellite" + i, SATELLITE_TYPES[i % SATELLITE_TYPES.length],
+                                       RADIUS_OF_JUPITER + 1000 + random.nextInt(80000),
+                                       Angle.fromDegrees(random.nextDouble() * 360));
+        }
+        for (int i = 0; i < numberOfDevices; i++) {
+            controller.createDevice("Device" + i, DEVICE_TYPES[i % DEVICE_TYPES.length],
+                                    Angle.fromDegrees(random.nextDouble() * 360));
+            controller.addFileToDevice("Device" + i, "FileDevice" + i, "Contents of file " + i);
+        }
+    }
+
+    private String trySend(BlackoutController controller, String fileName, String fromId, String toId) {
+        try {
+            controller.sendFile(fileName, fromId, toId);
+            return "";
+        } catch (FileTransferException e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    private void assertWorldsIdentical(BlackoutController expected, BlackoutController actual) {
+        List<String> satelliteIds = expected.listSatelliteIds();
+        assertEquals(satelliteIds, actual.listSatelliteIds());
+        for (String id : satelliteIds) {
+            assertEntitiesIdentical(expected.getInfo(id), actual.getInfo(id));
+        }
+
+        List<String> deviceIds = expected.listDeviceIds();
+        assertEquals(deviceIds, actual.listDeviceIds());
+        for (String id : deviceIds) {
+            assertEntitiesIdentical(expected.getInfo(id), actual.getInfo(id));
+        }
+    }
+
+    private void assertEntitiesIdentical(EntityInfoResponse expected, EntityInfoResponse actual) {
+        // EntityInfoResponse.equals allows small differences in position, so compare the raw bits too
+        assertEquals(expected, actual);
+        assertEquals(Double.doubleToLongBits(expected.getPosition().toRadians()),
+                     Double.doubleToLongBits(actual.getPosition().toRadians()));
+    }
+}
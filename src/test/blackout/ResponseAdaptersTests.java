@@ -0,0 +1,135 @@
+package blackout;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import unsw.blackout.BlackoutController;
+import unsw.blackout.FileTransferException;
+import unsw.response.EntityProjection;
+import unsw.response.ResponseAdapters;
+import unsw.response.models.EntityInfoResponse;
+import unsw.response.models.FileInfoResponse;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class ResponseAdaptersTests {
+    // What every response was written with before the adapters
+    private Gson reflective = new GsonBuilder().registerTypeAdapter(Angle.class,
+            (JsonSerializer<Angle>) (angle, type, context) -> new JsonPrimitive(angle.toRadians())).create();
+
+    private List<Map<String, EntityInfoResponse>> simulateWorld() throws FileTransferException {
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", 10000 + RADIUS_OF_JUPITER, Angle.fromDegrees(320));
+        controller.createSatellite("Satellite2", "TeleportingSatellite", 5000 + RADIUS_OF_JUPITER, Angle.fromDegrees(10));
+        controller.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(320));
+        controller.addFileToDevice("DeviceA", "FileAlpha", "Hello \"World\"\n\u00e9");
+        controller.sendFile("FileAlpha", "DeviceA", "Satellite1");
+
+        List<Map<String, EntityInfoResponse>> ticks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            controller.simulate();
+            Map<String, EntityInfoResponse> tick = new HashMap<>();
+            for (String id : controller.listSatelliteIds()) tick.put(id, controller.getInfo(id));
+            for (String id : controller.listDeviceIds()) tick.put(id, controller.getInfo(id));
+            ticks.add(tick);
+        }
+        return ticks;
+    }
+
+    @Test
+    public void testSameJsonAsReflection() throws FileTransferException {
+        Gson adapted = ResponseAdapters.register(new GsonBuilder(), ResponseAdapters.FULL_PRECISION).create();
+        List<Map<String, EntityInfoResponse>> ticks = simulateWorld();
+        assertEquals(reflective.toJson(ticks), adapted.toJson(ticks));
+
+        EntityInfoResponse sparse = new EntityInfoResponse("Nothing", Angle.fromRadians(1), 2, null, null);
+        assertEquals(reflective.toJson(sparse), adapted.toJson(sparse));
+        FileInfoResponse file = new FileInfoResponse("FileAlpha", null, 0, false);
+        assertEquals(reflective.toJson(file), adapted.toJson(file));
+    }
+
+    @Test
+    public void testBoundedPrecisionAndReadingBack() {
+        Gson rounded = ResponseAdapters.register(new GsonBuilder(), 3).create();
+        EntityInfoResponse entity = new EntityInfoResponse("Satellite1", Angle.fromRadians(Math.PI), 79911.123456,
+                "StandardSatellite");
+        String json = rounded.toJson(entity);
+        assertEquals("{\"id\":\"Satellite1\",\"position\":3.142,\"height\":79911.123,\"type\":\"StandardSatellite\","
+                + "\"files\":{}}", json);
+
+        Map<String, FileInfoResponse> files = new HashMap<>();
+        files.put("FileAlpha", new FileInfoResponse("FileAlpha", "Hello", 11, false));
+        EntityInfoResponse full = new EntityInfoResponse("DeviceA", Angle.fromRadians(0.5), RADIUS_OF_JUPITER,
+                "HandheldDevice", files);
+        Gson adapted = ResponseAdapters.register(new GsonBuilder(), ResponseAdapters.FULL_PRECISION).create();
+        assertEquals(full, adapted.fromJson(adapted.toJson(full), EntityInfoResponse.class));
+    }
+
+    @Test
+    public void testProjection() {
+        Gson adapted = ResponseAdapters.register(new GsonBuilder(), ResponseAdapters.FULL_PRECISION).create();
+        Map<String, FileInfoResponse> files = new HashMap<>();
+        files.put("FileAlpha", new FileInfoResponse("FileAlpha", "Hello", 11, false));
+        EntityInfoResponse entity = new EntityInfoResponse("DeviceA", Angle.fromRadians(0.5), RADIUS_OF_JUPITER,
+                "HandheldDevice", files);
+        Map<String, EntityInfoResponse> all = new HashMap<>();
+        all.put("DeviceA", entity);
+
+        EntityProjection positions = EntityProjection.parse("id, position", null);
+        assertEquals("{\"DeviceA\":{\"id\":\"DeviceA\",\"position\":0.5}}", adapted.toJson(positions.apply(all)));
+
+        EntityProjection metadata = EntityProjection.parse(null, "false");
+        assertEquals("[{\"id\":\"DeviceA\",\"position\":0.5,\"height\":69911.0,\"type\":\"HandheldDevice\","
+                + "\"files\":{\"FileAlpha\":{\"filename\":\"FileAlpha\",\"progress\":5,\"fileSize\":11,"
+                + "\"hasTransferCompleted\":false}}}]", adapted.toJson(metadata.apply(Arrays.asList(entity))));
+
+        // Asking for everything changes nothing
+        assertSame(all, EntityProjection.parse("files,type,height,position,id", "true").apply(all));
+        assertThrows(IllegalArgumentException.class, () -> EntityProjection.parse("id,colour", null));
+    }
+
+    @Test
+    public void testProjectedInfoOnlyBuildsWhatIsWanted() throws FileTransferException {
+        Gson adapted = ResponseAdapters.register(new GsonBuilder(), ResponseAdapters.FULL_PRECISION).create();
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", 10000 + RADIUS_OF_JUPITER, Angle.fromDegrees(320));
+        controller.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(320));
+        controller.addFileToDevice("DeviceA", "FileAlpha", "Hello World");
+        controller.sendFile("FileAlpha", "DeviceA", "Satellite1");
+        controller.simulate(4);
+
+        // Without file data, files carry how much has arrived but no contents
+        EntityProjection metadata = EntityProjection.parse(null, "false");
+        EntityInfoResponse full = controller.getInfo("Satellite1");
+        EntityInfoResponse projected = controller.getInfo("Satellite1", metadata);
+        assertEquals(FileInfoResponse.withoutData("FileAlpha", 4, 11, false), projected.getFiles().get("FileAlpha"));
+        assertEquals(adapted.toJson(metadata.apply(full)), adapted.toJson(metadata.apply(projected)));
+
+        // Without files, none are looked at
+        EntityProjection positions = EntityProjection.parse("id,position", null);
+        assertEquals(new HashMap<>(), controller.getInfo("Satellite1", positions).getFiles());
+        assertEquals(full, controller.getInfo("Satellite1", EntityProjection.ALL));
+
+        assertEquals(11, controller.getFileSize("Satellite1", "FileAlpha"));
+        assertEquals(11, controller.getFileSize("DeviceA", "FileAlpha"));
+        assertEquals(-1, controller.getFileSize("DeviceA", "FileBeta"));
+        assertEquals(-1, controller.getFileSize("Nobody", "FileAlpha"));
+    }
+}
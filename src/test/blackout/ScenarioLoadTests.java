@@ -0,0 +1,137 @@
+package blackout;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import unsw.blackout.BlackoutController;
+import unsw.blackout.EntityBatch;
+import unsw.scenario.ScenarioGenerator;
+import unsw.scenario.ScenarioReader;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class ScenarioLoadTests {
+    @Test
+    public void testBatchMatchesOneAtATime() {
+        BlackoutController single = new BlackoutController();
+        EntityBatch batch = new EntityBatch();
+        for (int i = 0; i < 200; i++) {
+            String type = (i % 3 == 0) ? "RelaySatellite" : "StandardSatellite";
+            double height = 5000 + RADIUS_OF_JUPITER + i * 100;
+            single.createSatellite("Satellite" + i, type, height, Angle.fromDegrees(i * 7));
+            batch.addSatellite("Satellite" + i, type, height, Angle.fromDegrees(i * 7));
+        }
+        for (int i = 0; i < 100; i++) {
+            single.createDevice("Device" + i, "LaptopDevice", Angle.fromDegrees(i * 11));
+            batch.addDevice("Device" + i, "LaptopDevice", Angle.fromDegrees(i * 11), false);
+        }
+        single.addFileToDevice("Device3", "FileAlpha", "Hello World");
+        batch.addFile("Device3", "FileAlpha", "Hello World");
+
+        BlackoutController loaded = new BlackoutController();
+        loaded.load(batch);
+        assertEquals(single.listSatelliteIds(), loaded.listSatelliteIds());
+        assertEquals(single.listDeviceIds(), loaded.listDeviceIds());
+        for (String id : single.listSatelliteIds()) {
+            assertEquals(single.getInfo(id), loaded.getInfo(id));
+            assertEquals(single.communicableEntitiesInRange(id), loaded.communicableEntitiesInRange(id));
+        }
+        assertEquals(single.getInfo("Device3"), loaded.getInfo("Device3"));
+    }
+
+    @Test
+    public void testInvalidBatchChangesNothing() {
+        BlackoutController controller = new BlackoutController();
+        controller.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(30));
+
+        EntityBatch batch = new EntityBatch();
+        batch.addSatellite("Satellite1", "StandardSatellite", 1000 + RADIUS_OF_JUPITER, Angle.fromDegrees(30));
+        batch.addDevice("DeviceB", "PagerDevice", Angle.fromDegrees(30), false);
+        assertThrows(IllegalArgumentException.class, () -> controller.load(batch));
+
+        EntityBatch duplicate = new EntityBatch();
+        duplicate.addSatellite("Twin", "StandardSatellite", 1000 + RADIUS_OF_JUPITER, Angle.fromDegrees(30));
+        duplicate.addDevice("Twin", "HandheldDevice", Angle.fromDegrees(30), false);
+        assertThrows(IllegalArgumentException.class, () -> controller.load(duplicate));
+
+        EntityBatch orphan = new EntityBatch();
+        orphan.addFile("Nobody", "FileAlpha", "Hello World");
+        assertThrows(IllegalArgumentException.class, () -> controller.load(orphan));
+
+        assertEquals(Arrays.asList(), controller.listSatelliteIds());
+        assertEquals(Arrays.asList("DeviceA"), controller.listDeviceIds());
+
+        // Files can go to devices already in the simulation
+        EntityBatch files = new EntityBatch();
+        files.addFile("DeviceA", "FileAlpha", "Hello World");
+        controller.load(files);
+        assertEquals(11, controller.getInfo("DeviceA").getFiles().get("FileAlpha").getFileSize());
+    }
+
+    @Test
+    public void testReadScenario() {
+        String json = "{\"satellites\": [{\"id\": \"Satellite1\", \"type\": \"StandardSatellite\","
+                + " \"height\": 80000, \"position\": 1.5, \"colour\": \"red\"}],"
+                + " \"devices\": [{\"id\": \"DeviceA\", \"type\": \"HandheldDevice\", \"position\": 1.5}],"
+                + " \"files\": [{\"deviceId\": \"DeviceA\", \"filename\": \"FileAlpha\", \"content\": \"Hi\"}]}";
+        EntityBatch batch = ScenarioReader.read(new StringReader(json));
+        assertEquals(Arrays.asList("Satellite1", "DeviceA"), batch.listIds());
+        assertEquals(2, batch.getFileBytes());
+
+        BlackoutController controller = new BlackoutController();
+        controller.load(batch);
+        assertEquals(80000, controller.getInfo("Satellite1").getHeight());
+        assertEquals(Arrays.asList("DeviceA"), controller.communicableEntitiesInRange("Satellite1"));
+
+        assertThrows(IllegalArgumentException.class, () -> ScenarioReader.read(new StringReader("{\"devices\": [")));
+        assertThrows(IllegalArgumentException.class,
+            () -> ScenarioReader.read(new StringReader("{\"devices\": [{\"position\": \"north\"}]}")));
+
+        // Values of the wrong kind are reported against the entity, wherever its ID appears
+        IllegalArgumentException height = assertThrows(IllegalArgumentException.class,
+            () -> ScenarioReader.read(new StringReader("{\"satellites\": [{\"height\": \"high\","
+                + " \"id\": \"Satellite1\", \"position\": 1.5}]}")));
+        assertEquals("entity Satellite1: height must be a number", height.getMessage());
+        IllegalArgumentException moving = assertThrows(IllegalArgumentException.class,
+            () -> ScenarioReader.read(new StringReader("{\"devices\": [{\"id\": \"DeviceA\", \"position\": 1.5,"
+                + " \"isMoving\": 1}]}")));
+        assertEquals("entity DeviceA: isMoving must be true or false", moving.getMessage());
+    }
+
+    @Test
+    public void testGeneratedScenarioIsRepeatable() throws Exception {
+        StringWriter first = new StringWriter();
+        new ScenarioGenerator(42, 20, 10, 2).write(first);
+        StringWriter again = new StringWriter();
+        new ScenarioGenerator(42, 20, 10, 2).write(again);
+        StringWriter other = new StringWriter();
+        new ScenarioGenerator(43, 20, 10, 2).write(other);
+        assertEquals(first.toString(), again.toString());
+        assertNotEquals(first.toString(), other.toString());
+
+        // What is written reads back as the same batch the generator makes directly
+        EntityBatch batch = new ScenarioGenerator(42, 20, 10, 2).toBatch();
+        EntityBatch read = ScenarioReader.read(new StringReader(first.toString()));
+        assertEquals(60, batch.getNumberOfSatellites());
+        assertEquals(30, batch.getNumberOfDevices());
+        assertEquals(60, batch.getNumberOfFiles());
+        assertEquals(batch.listIds(), read.listIds());
+        assertEquals(batch.getFileBytes(), read.getFileBytes());
+
+        BlackoutController controller = new BlackoutController();
+        controller.load(read);
+        assertEquals(90, controller.getNumberOfEntities());
+        controller.simulate(10);
+    }
+}
+
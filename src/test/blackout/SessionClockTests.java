@@ -0,0 +1,96 @@
+package blackout;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import unsw.blackout.BlackoutController;
+import unsw.session.SessionClock;
+import unsw.session.SessionState;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class SessionClockTests {
+    private SessionState newSession() {
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", 1000 + RADIUS_OF_JUPITER, Angle.fromDegrees(320));
+        return new SessionState(controller);
+    }
+
+    private long tickOf(SessionState state) {
+        return state.write(bc -> bc.getCurrentTick());
+    }
+
+    @Test
+    public void testFixedRateAndStop() throws InterruptedException {
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+        SessionState state = newSession();
+        SessionClock clock = new SessionClock(scheduler, state);
+        clock.start(10);
+        // Changing the rate keeps the one pin
+        clock.start(10);
+        assertTrue(state.isPinned());
+        Thread.sleep(300);
+        clock.stop();
+        clock.stop();
+        assertFalse(state.isPinned());
+        Thread.sleep(50);
+
+        long ticks = tickOf(state);
+        assertTrue(ticks >= 10 && ticks <= 31, "ticked " + ticks + " times");
+        assertFalse(clock.isRunning());
+        Thread.sleep(50);
+        assertEquals(ticks, tickOf(state));
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testBusySessionDoesNotHoldUpOthers() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+        SessionState busy = newSession();
+        SessionState other = newSession();
+        SessionClock busyClock = new SessionClock(scheduler, busy);
+        SessionClock otherClock = new SessionClock(scheduler, other);
+
+        // Someone else holds the busy session's lock the whole time
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            try {
+                busy.write(bc -> {
+                    locked.countDown();
+                    release.await();
+                    return null;
+                });
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        busyClock.start(0);
+        otherClock.start(0);
+        Thread.sleep(200);
+        otherClock.stop();
+        assertTrue(tickOf(other) > 0);
+
+        // Once free, the busy session catches up as fast as possible
+        release.countDown();
+        writer.join();
+        Thread.sleep(100);
+        busyClock.stop();
+        assertTrue(tickOf(busy) > 0);
+        scheduler.shutdownNow();
+    }
+}
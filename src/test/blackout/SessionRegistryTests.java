@@ -0,0 +1,239 @@
+package blackout;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import unsw.blackout.BlackoutController;
+import unsw.blackout.FileTransferException;
+import unsw.response.models.EntityInfoResponse;
+import unsw.session.QuotaExceededException;
+import unsw.session.SessionConfig;
+import unsw.session.SessionRegistry;
+import unsw.session.SessionState;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class SessionRegistryTests {
+    @Test
+    public void testIdleAndLeastRecentlyUsedEviction() {
+        AtomicLong now = new AtomicLong(0);
+        SessionRegistry registry = new SessionRegistry(new SessionConfig(1000, 2, 0, 0, null), now::get);
+        List<String> evicted = new ArrayList<>();
+        registry.addEvictionListener(evicted::add);
+
+        SessionState a = registry.get("a");
+        registry.get("b");
+        assertSame(a, registry.get("a"));
+
+        // Too many sessions: b was used least recently
+        registry.get("c");
+        assertEquals(Arrays.asList("b"), evicted);
+        assertNull(registry.find("b"));
+        assertEquals(2, registry.getNumberOfSessions());
+
+        // Only sessions untouched for longer than a second are idle
+        now.set(600);
+        registry.get("c");
+        now.set(1100);
+        registry.get("c");
+        assertEquals(Arrays.asList("b", "a"), evicted);
+        assertNotSame(a, registry.get("a"));
+    }
+
+    @Test
+    public void testPinnedSessionsKept() {
+        AtomicLong now = new AtomicLong(0);
+        SessionRegistry registry = new SessionRegistry(new SessionConfig(1000, 2, 0, 0, null), now::get);
+        List<String> evicted = new ArrayList<>();
+        registry.addEvictionListener(evicted::add);
+
+        // Neither idle time nor newer sessions evict a pinned session
+        SessionState a = registry.get("a");
+        a.pin();
+        now.set(5000);
+        registry.get("b");
+        registry.get("c");
+        assertEquals(Arrays.asList("b"), evicted);
+        assertSame(a, registry.find("a"));
+
+        a.unpin();
+        now.set(10000);
+        registry.get("d");
+        assertEquals(3, evicted.size());
+        assertTrue(evicted.containsAll(Arrays.asList("a", "c")));
+    }
+
+    @Test
+    public void testNoLimitsNeverEvict() {
+        AtomicLong now = new AtomicLong(0);
+        SessionRegistry registry = new SessionRegistry(new SessionConfig(0, 0, 0, 0, null), now::get);
+        List<String> evicted = new ArrayList<>();
+        registry.addEvictionListener(evicted::add);
+
+        SessionState a = registry.get("a");
+        for (int i = 0; i < 300; i++) registry.get("session" + i);
+        now.set(365L * 24 * 60 * 60 * 1000);
+        registry.get("b");
+        assertEquals(Arrays.asList(), evicted);
+        assertSame(a, registry.get("a"));
+        assertEquals(302, registry.getNumberOfSessions());
+    }
+
+    @Test
+    public void testSpillAndRestore() throws Exception {
+        Path directory = Files.createTempDirectory("sessions");
+        AtomicLong now = new AtomicLong(0);
+        SessionRegistry registry = new SessionRegistry(new SessionConfig(1000, 10, 0, 0, directory), now::get);
+
+        SessionState state = registry.get("a");
+        state.write(bc -> {
+            bc.createSatellite("Satellite1", "StandardSatellite", 10000 + RADIUS_OF_JUPITER, Angle.fromDegrees(320));
+            bc.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(320));
+            bc.addFileToDevice("DeviceA", "FileAlpha", "Hello World");
+            bc.sendFile("FileAlpha", "DeviceA", "Satellite1");
+            bc.simulate(12);
+            return null;
+        });
+        EntityInfoResponse before = state.read().getInfo("Satellite1");
+        assertTrue(before.getFiles().get("FileAlpha").hasTransferCompleted());
+
+        now.set(2000);
+        registry.get("b");
+        Path spilled = directory.resolve("a.json");
+        for (int i = 0; i < 100 && !Files.exists(spilled); i++) Thread.sleep(20);
+        assertTrue(Files.exists(spilled));
+
+        SessionState restored = registry.find("a");
+        assertNotSame(state, restored);
+        assertFalse(Files.exists(spilled));
+        assertEquals(12, restored.read().getTick());
+        assertEquals(before, restored.read().getInfo("Satellite1"));
+        assertEquals(Arrays.asList("DeviceA"), restored.read().communicableEntitiesInRange("Satellite1"));
+    }
+
+    @Test
+    public void testConcurrentLookupsShareOneRestore() throws Exception {
+        Path directory = Files.createTempDirectory("sessions");
+        AtomicLong now = new AtomicLong(0);
+        SessionRegistry registry = new SessionRegistry(new SessionConfig(1000, 10, 0, 0, directory), now::get);
+        registry.get("a").write(bc -> {
+            bc.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(320));
+            return null;
+        });
+
+        now.set(2000);
+        registry.get("b");
+        Path spilled = directory.resolve("a.json");
+        for (int i = 0; i < 100 && !Files.exists(spilled); i++) Thread.sleep(20);
+        assertTrue(Files.exists(spilled));
+
+        // Every lookup gets the one session read back, and lookups of others carry on meanwhile
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<SessionState>> restored = new ArrayList<>();
+            List<Future<SessionState>> others = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                restored.add(pool.submit(() -> registry.find("a")));
+                others.add(pool.submit(() -> registry.get("b")));
+            }
+            SessionState first = restored.get(0).get();
+            assertEquals(Arrays.asList("DeviceA"), first.read().listDeviceIds());
+            for (Future<SessionState> each : restored) assertSame(first, each.get());
+            for (Future<SessionState> each : others) assertSame(registry.find("b"), each.get());
+        } finally {
+            pool.shutdown();
+        }
+        assertFalse(Files.exists(spilled));
+    }
+
+    @Test
+    public void testRestoredSatellitesKeepDirection() throws Exception {
+        Path directory = Files.createTempDirectory("sessions");
+        AtomicLong now = new AtomicLong(0);
+        SessionRegistry registry = new SessionRegistry(new SessionConfig(1000, 10, 0, 0, directory), now::get);
+
+        // Both have turned around by the time the session is spilled
+        SessionState.Write<Void, RuntimeException> create = bc -> {
+            bc.createSatellite("Relay", "RelaySatellite", 10000 + RADIUS_OF_JUPITER, Angle.fromDegrees(145));
+            bc.createSatellite("Teleporter", "TeleportingSatellite", 10000 + RADIUS_OF_JUPITER, Angle.fromDegrees(175));
+            bc.simulate(10);
+            return null;
+        };
+        SessionState unsaved = new SessionState(new BlackoutController());
+        unsaved.write(create);
+        registry.get("a").write(create);
+
+        now.set(2000);
+        registry.get("b");
+        Path spilled = directory.resolve("a.json");
+        for (int i = 0; i < 100 && !Files.exists(spilled); i++) Thread.sleep(20);
+        assertTrue(Files.exists(spilled));
+
+        SessionState restored = registry.find("a");
+        for (int minutes : new int[] {1, 5, 40}) {
+            unsaved.write(bc -> {
+                bc.simulate(minutes);
+                return null;
+            });
+            restored.write(bc -> {
+                bc.simulate(minutes);
+                return null;
+            });
+            for (String id : Arrays.asList("Relay", "Teleporter")) {
+                assertEquals(unsaved.read().getInfo(id), restored.read().getInfo(id));
+            }
+        }
+    }
+
+    @Test
+    public void testQuotas() throws FileTransferException {
+        SessionState state = new SessionState(new BlackoutController(), 2, 20);
+        state.write(bc -> {
+            state.checkCanCreate("DeviceA");
+            bc.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(320));
+            state.checkCanCreate("Satellite1");
+            bc.createSatellite("Satellite1", "StandardSatellite", 1000 + RADIUS_OF_JUPITER, Angle.fromDegrees(320));
+            state.checkCanStore(11);
+            bc.addFileToDevice("DeviceA", "FileAlpha", "Hello World");
+            return null;
+        });
+        assertEquals(2, state.getNumberOfEntities());
+        assertEquals(11, state.getStoredFileBytes());
+
+        assertThrows(QuotaExceededException.class, () -> state.write(bc -> {
+            state.checkCanCreate("DeviceB");
+            return null;
+        }));
+        assertThrows(QuotaExceededException.class, () -> state.write(bc -> {
+            state.checkCanStore(10);
+            return null;
+        }));
+
+        // Replacing an entity does not count as another one
+        state.write(bc -> {
+            state.checkCanCreate("DeviceA");
+            state.checkCanStore(9);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,128 @@
+package blackout;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import unsw.blackout.BlackoutController;
+import unsw.blackout.WorldSnapshot;
+import unsw.response.ResponseCache;
+import unsw.session.QuotaExceededException;
+import unsw.session.SessionState;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class SessionStateTests {
+    @Test
+    public void testSnapshotFollowsWrites() {
+        SessionState state = new SessionState(new BlackoutController());
+        WorldSnapshot empty = state.read();
+        assertTrue(empty.listDeviceIds().isEmpty());
+        assertSame(empty, state.read());
+
+        state.write(bc -> {
+            bc.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(30));
+            bc.createSatellite("Satellite1", "StandardSatellite", 1000 + RADIUS_OF_JUPITER, Angle.fromDegrees(30));
+            return null;
+        });
+        WorldSnapshot world = state.read();
+        assertEquals(Arrays.asList("DeviceA"), world.listDeviceIds());
+        assertEquals(Arrays.asList("DeviceA"), world.communicableEntitiesInRange("Satellite1"));
+        assertNull(empty.getInfo("DeviceA"));
+    }
+
+    @Test
+    public void testReadDoesNotWaitForWriter() throws Exception {
+        SessionState state = new SessionState(new BlackoutController());
+        state.write(bc -> {
+            bc.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(30));
+            return null;
+        });
+        WorldSnapshot before = state.read();
+
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try {
+                state.write(bc -> {
+                    bc.createDevice("DeviceB", "LaptopDevice", Angle.fromDegrees(60));
+                    writing.countDown();
+                    release.await();
+                    bc.simulate();
+                    return null;
+                });
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // The writer is still busy, so the reader gets the last snapshot straight away
+        WorldSnapshot during = CompletableFuture.supplyAsync(state::read).get(5, TimeUnit.SECONDS);
+        assertSame(before, during);
+
+        release.countDown();
+        writer.get(5, TimeUnit.SECONDS);
+        WorldSnapshot after = state.read();
+        assertNotNull(after.getInfo("DeviceB"));
+        assertEquals(1, after.getTick());
+    }
+
+    @Test
+    public void testVersionFollowsChanges() {
+        SessionState state = new SessionState(new BlackoutController(), 1, 0);
+        WorldSnapshot empty = state.read();
+
+        // Reading, or failing a quota check, changes nothing
+        assertSame(empty, state.read());
+        state.write(bc -> {
+            bc.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(30));
+            return null;
+        });
+        WorldSnapshot created = state.read();
+        assertTrue(created.getVersion() > empty.getVersion());
+        assertThrows(QuotaExceededException.class, () -> state.write(bc -> {
+            state.checkCanCreate("DeviceB");
+            return null;
+        }));
+        assertSame(created, state.read());
+
+        state.write(bc -> {
+            bc.simulate();
+            return null;
+        });
+        assertTrue(state.read().getVersion() > created.getVersion());
+    }
+
+    @Test
+    public void testResponseCacheKeepsBodyForVersion() {
+        ResponseCache cache = new ResponseCache(2);
+        AtomicInteger writes = new AtomicInteger();
+        assertEquals("a1", cache.get("a", 1, () -> "a" + writes.incrementAndGet()));
+        assertEquals("a1", cache.get("a", 1, () -> "a" + writes.incrementAndGet()));
+        assertEquals("a2", cache.get("a", 2, () -> "a" + writes.incrementAndGet()));
+
+        // The least recently used request is dropped first
+        cache.get("b", 2, () -> "b");
+        cache.get("a", 2, () -> "unused");
+        cache.get("c", 2, () -> "c");
+        assertEquals(2, cache.size());
+        assertEquals("a2", cache.get("a", 2, () -> "unused"));
+        assertEquals("b again", cache.get("b", 2, () -> "b again"));
+        assertEquals(2, writes.get());
+    }
+}
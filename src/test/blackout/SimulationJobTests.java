@@ -0,0 +1,81 @@
+package blackout;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import unsw.blackout.BlackoutController;
+import unsw.job.JobRunner;
+import unsw.job.SimulationJob;
+import unsw.job.SimulationJob.Status;
+import unsw.session.SessionState;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class SimulationJobTests {
+    private SessionState newSession() {
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", 1000 + RADIUS_OF_JUPITER, Angle.fromDegrees(320));
+        controller.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(320));
+        return new SessionState(controller);
+    }
+
+    private void awaitFinished(SimulationJob job) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            Status status = job.getStatus();
+            if (status != Status.QUEUED && status != Status.RUNNING) return;
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testJobRunsInBackground() throws InterruptedException {
+        JobRunner runner = new JobRunner(1, 4, 16);
+        SessionState state = newSession();
+        SimulationJob job = runner.submit("a", state, 5000);
+        awaitFinished(job);
+
+        assertEquals(Status.DONE, job.getStatus());
+        assertEquals(5000, job.getTicksDone());
+        assertTrue(job.getTicksPerSecond() > 0);
+        assertEquals(5000, state.read().getTick());
+        assertFalse(state.isPinned());
+
+        assertSame(job, runner.find("a", job.getId()));
+        assertNull(runner.find("b", job.getId()));
+    }
+
+    @Test
+    public void testCancelAndQueueLimit() throws InterruptedException {
+        JobRunner runner = new JobRunner(1, 1, 16);
+        SessionState state = newSession();
+        SimulationJob running = runner.submit("a", state, Integer.MAX_VALUE);
+        SimulationJob queued = runner.submit("a", state, 10);
+        assertThrows(RejectedExecutionException.class, () -> runner.submit("a", state, 10));
+        assertTrue(state.isPinned());
+
+        // A queued job never starts
+        queued.cancel();
+        assertEquals(Status.CANCELLED, queued.getStatus());
+        assertEquals(0, queued.getTicksDone());
+
+        while (running.getTicksDone() == 0) Thread.sleep(1);
+        runner.cancelSession("a");
+        awaitFinished(running);
+        assertEquals(Status.CANCELLED, running.getStatus());
+        assertEquals(running.getTicksDone(), state.read().getTick());
+
+        // The session can be evicted again once none of its jobs are left
+        assertFalse(state.isPinned());
+    }
+}
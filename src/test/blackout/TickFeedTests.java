@@ -0,0 +1,231 @@
+package blackout;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import unsw.blackout.BlackoutController;
+import unsw.feed.FeedSubscription;
+import unsw.feed.TickFeed;
+import unsw.feed.TickFeedSocket;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.lang.reflect.Proxy;
+import java.net.HttpCookie;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.UpgradeRequest;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class TickFeedTests {
+    @Test
+    public void testFiltersAndChanges() {
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", 1000 + RADIUS_OF_JUPITER, Angle.fromDegrees(320));
+        controller.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(320));
+        controller.createDevice("DeviceB", "LaptopDevice", Angle.fromDegrees(100));
+
+        TickFeed feed = new TickFeed(controller);
+        List<String> everything = new ArrayList<>();
+        List<String> laptops = new ArrayList<>();
+        FeedSubscription laptopSubscription = new FeedSubscription(laptops::add);
+        laptopSubscription.setFilter(Arrays.asList(), Arrays.asList("LaptopDevice"));
+        feed.subscribe(new FeedSubscription(everything::add));
+        feed.subscribe(laptopSubscription);
+
+        controller.simulate();
+        JsonObject first = JsonParser.parseString(everything.get(0)).getAsJsonObject();
+        assertEquals(1, first.get("tick").getAsLong());
+        JsonObject satellite = first.getAsJsonObject("entities").getAsJsonObject("Satellite1");
+        assertEquals("StandardSatellite", satellite.get("type").getAsString());
+        assertEquals("DeviceA", satellite.getAsJsonArray("inRange").get(0).getAsString());
+
+        JsonObject laptop = JsonParser.parseString(laptops.get(0)).getAsJsonObject().getAsJsonObject("entities");
+        assertEquals(Arrays.asList("DeviceB"), new ArrayList<>(laptop.keySet()));
+
+        // Nothing about the laptop changes, so its subscriber hears nothing more
+        controller.simulate();
+        assertEquals(2, everything.size());
+        assertEquals(1, laptops.size());
+        JsonObject second = JsonParser.parseString(everything.get(1)).getAsJsonObject().getAsJsonObject("entities");
+        assertFalse(second.has("DeviceA"));
+        assertFalse(second.getAsJsonObject("Satellite1").has("type"));
+        assertTrue(second.getAsJsonObject("Satellite1").has("position"));
+
+        controller.removeDevice("DeviceB");
+        controller.simulate();
+        JsonObject removed = JsonParser.parseString(laptops.get(1)).getAsJsonObject();
+        assertEquals("DeviceB", removed.getAsJsonArray("removed").get(0).getAsString());
+
+        feed.close();
+        controller.simulate();
+        assertEquals(3, everything.size());
+    }
+
+    @Test
+    public void testMalformedFilterRejected() {
+        BlackoutController controller = new BlackoutController();
+        controller.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(320));
+        TickFeed feed = new TickFeed(controller);
+        TickFeedSocket socket = new TickFeedSocket(id -> id.equals("abc") ? feed : null);
+        List<String> sent = new ArrayList<>();
+        Session session = this.fakeSession("abc", sent, null);
+        socket.connected(session);
+
+        for (String filter : new String[] {"{\"ids\": [{}]}", "{\"types\": [[\"LaptopDevice\"]]}",
+                                           "{\"ids\": [1]}", "{\"ids\": \"DeviceA\"}", "[]", "{"}) {
+            socket.message(session, filter);
+            assertTrue(sent.remove(0).contains("error"), filter);
+        }
+        // Still subscribed to everything
+        controller.simulate();
+        assertTrue(JsonParser.parseString(sent.get(0)).getAsJsonObject().getAsJsonObject("entities").has("DeviceA"));
+    }
+
+    @Test
+    public void testSlowSubscriberSkipsTicks() {
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", 1000 + RADIUS_OF_JUPITER, Angle.fromDegrees(320));
+        TickFeed feed = new TickFeed(controller);
+        TickFeedSocket socket = new TickFeedSocket(id -> feed);
+        List<String> sent = new ArrayList<>();
+        List<WriteCallback> unwritten = new ArrayList<>();
+        socket.connected(this.fakeSession("abc", sent, unwritten));
+
+        // Nothing is being written, so only so many ticks are handed over
+        for (int i = 0; i < 20; i++) controller.simulate();
+        assertEquals(TickFeedSocket.MAX_SENDS_IN_FLIGHT, sent.size());
+
+        // Once they are written, the next message catches up with every tick in between
+        unwritten.forEach(WriteCallback::writeSuccess);
+        unwritten.clear();
+        controller.simulate();
+        assertEquals(TickFeedSocket.MAX_SENDS_IN_FLIGHT + 1, sent.size());
+        JsonObject latest = JsonParser.parseString(sent.get(sent.size() - 1)).getAsJsonObject();
+        assertEquals(21, latest.get("tick").getAsLong());
+        assertEquals(controller.getInfo("Satellite1").getPosition().toRadians(),
+                     latest.getAsJsonObject("entities").getAsJsonObject("Satellite1").get("position").getAsDouble());
+    }
+
+    @Test
+    public void testFileChangesBetweenTicks() {
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", 1000 + RADIUS_OF_JUPITER, Angle.fromDegrees(320));
+        controller.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(320));
+        controller.addFileToDevice("DeviceA", "FileAlpha", "Hello");
+        TickFeed feed = new TickFeed(controller);
+        List<String> sent = new ArrayList<>();
+        feed.subscribe(new FeedSubscription(sent::add));
+        controller.simulate();
+
+        // Sent between ticks, then filled in a byte a minute until it is done
+        assertDoesNotThrow(() -> controller.sendFile("FileAlpha", "DeviceA", "Satellite1"));
+        for (int i = 1; i <= 5; i++) {
+            controller.simulate();
+            JsonObject satellite = entities(sent.get(sent.size() - 1)).getAsJsonObject("Satellite1");
+            JsonObject file = satellite.getAsJsonObject("files").getAsJsonObject("FileAlpha");
+            assertEquals(i, file.get("progress").getAsInt());
+            assertEquals(i == 5, file.get("completed").getAsBoolean());
+        }
+        controller.simulate();
+        assertFalse(entities(sent.get(sent.size() - 1)).getAsJsonObject("Satellite1").has("files"));
+
+        // Put back without its file, which the next tick reports as gone
+        controller.removeDevice("DeviceA");
+        controller.createDevice("DeviceA", "HandheldDevice", Angle.fromDegrees(320));
+        controller.simulate();
+        JsonObject device = entities(sent.get(sent.size() - 1)).getAsJsonObject("DeviceA");
+        assertEquals("FileAlpha", device.getAsJsonArray("removedFiles").get(0).getAsString());
+        assertEquals(0, device.getAsJsonObject("files").size());
+        assertFalse(device.has("position"));
+    }
+
+    @Test
+    public void testClosingDisconnectsSubscribers() {
+        BlackoutController controller = new BlackoutController();
+        TickFeed feed = new TickFeed(controller);
+        TickFeedSocket socket = new TickFeedSocket(id -> feed);
+        List<Integer> closes = new ArrayList<>();
+        Session session = this.fakeSession("abc", new ArrayList<>(), null, closes);
+        socket.connected(session);
+        assertEquals(1, feed.getNumberOfSubscriptions());
+
+        feed.close();
+        assertEquals(Arrays.asList(StatusCode.SHUTDOWN), closes);
+        assertEquals(0, feed.getNumberOfSubscriptions());
+    }
+
+    private static JsonObject entities(String message) {
+        return JsonParser.parseString(message).getAsJsonObject().getAsJsonObject("entities");
+    }
+
+    /*
+     * An open WebSocket carrying the given session cookie, which keeps everything sent on it.
+     * Sends are written straight away, or never if unwritten is given, which keeps their callbacks.
+     */
+    private Session fakeSession(String sessionId, List<String> sent, List<WriteCallback> unwritten) {
+        return this.fakeSession(sessionId, sent, unwritten, new ArrayList<>());
+    }
+
+    /*
+     * Also keeps the status code of every time it is closed.
+     */
+    private Session fakeSession(String sessionId, List<String> sent, List<WriteCallback> unwritten,
+                                List<Integer> closes) {
+        UpgradeRequest upgrade = fake(UpgradeRequest.class, (method, args) -> {
+            if (method.equals("getCookies")) return Arrays.asList(new HttpCookie("JSESSIONID", sessionId));
+            return null;
+        });
+        RemoteEndpoint remote = fake(RemoteEndpoint.class, (method, args) -> {
+            if (method.equals("sendStringByFuture")) {
+                sent.add((String) args[0]);
+                return CompletableFuture.completedFuture(null);
+            }
+            if (!method.equals("sendString")) throw new UnsupportedOperationException(method);
+            sent.add((String) args[0]);
+            if (args.length < 2) return null;
+            if (unwritten == null) ((WriteCallback) args[1]).writeSuccess();
+            else unwritten.add((WriteCallback) args[1]);
+            return null;
+        });
+        return fake(Session.class, (method, args) -> {
+            if (method.equals("getUpgradeRequest")) return upgrade;
+            if (method.equals("getRemote")) return remote;
+            if (method.equals("isOpen")) return true;
+            if (method.equals("close") && args != null && args.length == 2) {
+                closes.add((Integer) args[0]);
+                return null;
+            }
+            throw new UnsupportedOperationException(method);
+        });
+    }
+
+    /*
+     * Implements an interface by method name. Instances are only equal to themselves.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T fake(Class<T> type, BiFunction<String, Object[], Object> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (method.getName().equals("hashCode")) return System.identityHashCode(proxy);
+            if (method.getName().equals("equals")) return proxy == args[0];
+            return methods.apply(method.getName(), args);
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package blackout;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import unsw.blackout.BlackoutController;
+import unsw.response.EntityProjection;
+import unsw.response.ResponseAdapters;
+import unsw.response.TickStreamWriter;
+import unsw.response.models.EntityInfoResponse;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class TickStreamWriterTests {
+    @Test
+    public void testOnlyChangesAreWritten() throws IOException {
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", 10000 + RADIUS_OF_JUPITER, Angle.fromDegrees(320));
+        controller.createDevice("DeviceC", "HandheldDevice", Angle.fromDegrees(320));
+        controller.addFileToDevice("DeviceC", "FileAlpha", "Hey");
+        assertDoesNotThrow(() -> controller.sendFile("FileAlpha", "DeviceC", "Satellite1"));
+
+        StringWriter out = new StringWriter();
+        TickStreamWriter ticks = new TickStreamWriter(out, new Gson());
+        for (int i = 0; i < 4; i++) {
+            controller.simulate();
+            ticks.writeTick(allEntities(controller));
+        }
+        ticks.finish();
+
+        JsonArray result = JsonParser.parseString(out.toString()).getAsJsonArray();
+        assertEquals(4, result.size());
+
+        // The first tick has everything
+        JsonObject first = result.get(0).getAsJsonObject();
+        assertTrue(first.has("DeviceC"));
+        assertEquals("StandardSatellite", first.getAsJsonObject("Satellite1").get("type").getAsString());
+
+        // Later ticks only have the satellite's new position and the file while it is arriving
+        JsonObject second = result.get(1).getAsJsonObject();
+        assertFalse(second.has("DeviceC"));
+        JsonObject satellite = second.getAsJsonObject("Satellite1");
+        assertTrue(satellite.has("position"));
+        assertFalse(satellite.has("type"));
+        assertEquals("He", satellite.getAsJsonObject("files").getAsJsonObject("FileAlpha").get("data").getAsString());
+
+        JsonObject fourth = result.get(3).getAsJsonObject().getAsJsonObject("Satellite1");
+        assertFalse(fourth.has("files"));
+    }
+
+    @Test
+    public void testProjectedTicks() throws IOException {
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", 10000 + RADIUS_OF_JUPITER,
+                                   Angle.fromDegrees(320));
+        controller.createDevice("DeviceC", "HandheldDevice", Angle.fromDegrees(320));
+        controller.addFileToDevice("DeviceC", "FileAlpha", "Hey");
+        assertDoesNotThrow(() -> controller.sendFile("FileAlpha", "DeviceC", "Satellite1"));
+
+        Gson gson = ResponseAdapters.register(new GsonBuilder(), ResponseAdapters.FULL_PRECISION).create();
+        StringWriter out = new StringWriter();
+        TickStreamWriter ticks = new TickStreamWriter(out, gson, EntityProjection.parse("type,files", "false"));
+        for (int i = 0; i < 4; i++) {
+            controller.simulate();
+            ticks.writeTick(allEntities(controller));
+        }
+        ticks.finish();
+        JsonArray result = JsonParser.parseString(out.toString()).getAsJsonArray();
+
+        JsonObject first = result.get(0).getAsJsonObject().getAsJsonObject("Satellite1");
+        assertEquals("StandardSatellite", first.get("type").getAsString());
+        assertFalse(first.has("position"));
+        assertFalse(first.has("height"));
+        JsonObject file = first.getAsJsonObject("files").getAsJsonObject("FileAlpha");
+        assertFalse(file.has("data"));
+        assertEquals(1, file.get("progress").getAsInt());
+
+        // Moving is not asked for, so only the file arriving counts as a change
+        JsonObject second = result.get(1).getAsJsonObject();
+        assertFalse(second.has("DeviceC"));
+        assertEquals(2, second.getAsJsonObject("Satellite1").getAsJsonObject("files").getAsJsonObject("FileAlpha")
+                              .get("progress").getAsInt());
+        assertFalse(second.getAsJsonObject("Satellite1").has("type"));
+        assertEquals(0, result.get(3).getAsJsonObject().size());
+    }
+
+    private List<EntityInfoResponse> allEntities(BlackoutController controller) {
+        List<EntityInfoResponse> entities = new ArrayList<>();
+        controller.listSatelliteIds().forEach(id -> entities.add(controller.getInfo(id)));
+        controller.listDeviceIds().forEach(id -> entities.add(controller.getInfo(id)));
+        return entities;
+    }
+}
@@ -0,0 +1,136 @@
+package blackout;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import unsw.blackout.BlackoutController;
+import unsw.blackout.FileTransferException;
+import unsw.response.models.FileInfoResponse;
+import unsw.utils.Angle;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static unsw.utils.MathsHelper.RADIUS_OF_JUPITER;
+
+@TestInstance(value = Lifecycle.PER_CLASS)
+public class TransferSchedulerTests {
+    @Test
+    public void testSparseTransfersInCrowdedWorld() {
+        // A handful of transfers among thousands of idle entities complete on exactly the right minute
+        BlackoutController controller = new BlackoutController();
+        for (int i = 0; i < 3000; i++) {
+            controller.createSatellite("Idle" + i, "StandardSatellite", RADIUS_OF_JUPITER + 5000 + i,
+                                       Angle.fromDegrees(i % 360));
+        }
+        controller.createSatellite("Satellite1", "TeleportingSatellite", RADIUS_OF_JUPITER + 5000,
+                                   Angle.fromDegrees(100));
+        controller.createDevice("DeviceA", "LaptopDevice", Angle.fromDegrees(100));
+
+        // 40 bytes at the teleporting satellite's 15 bytes per minute takes 3 minutes
+        String msg = "0123456789012345678901234567890123456789";
+        controller.addFileToDevice("DeviceA", "FileAlpha", msg);
+        assertDoesNotThrow(() -> controller.sendFile("FileAlpha", "DeviceA", "Satellite1"));
+
+        controller.simulate();
+        assertEquals(new FileInfoResponse("FileAlpha", msg.substring(0, 15), msg.length(), false),
+                     controller.getInfo("Satellite1").getFiles().get("FileAlpha"));
+        assertThrows(FileTransferException.VirtualFileAlreadyExistsException.class,
+                     () -> controller.sendFile("FileAlpha", "DeviceA", "Satellite1"));
+
+        controller.simulate(1);
+        assertEquals(new FileInfoResponse("FileAlpha", msg.substring(0, 30), msg.length(), false),
+                     controller.getInfo("Satellite1").getFiles().get("FileAlpha"));
+
+        controller.simulate();
+        assertEquals(new FileInfoResponse("FileAlpha", msg, msg.length(), true),
+                     controller.getInfo("Satellite1").getFiles().get("FileAlpha"));
+
+        // Once complete it can be sent straight back down at 10 bytes per minute
+        controller.createDevice("DeviceB", "HandheldDevice", Angle.fromDegrees(100));
+        assertDoesNotThrow(() -> controller.sendFile("FileAlpha", "Satellite1", "DeviceB"));
+        controller.simulate(3);
+        assertEquals(new FileInfoResponse("FileAlpha", msg.substring(0, 30), msg.length(), false),
+                     controller.getInfo("DeviceB").getFiles().get("FileAlpha"));
+        controller.simulate(500);
+        assertEquals(new FileInfoResponse("FileAlpha", msg, msg.length(), true),
+                     controller.getInfo("DeviceB").getFiles().get("FileAlpha"));
+    }
+
+    @Test
+    public void testBandwidthSharedBetweenTransfers() {
+        // A teleporting satellite receives 15 bytes a minute, split evenly between everything it is receiving
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "TeleportingSatellite", RADIUS_OF_JUPITER + 5000,
+                                   Angle.fromDegrees(100));
+        controller.createDevice("DeviceA", "LaptopDevice", Angle.fromDegrees(100));
+        controller.createDevice("DeviceB", "LaptopDevice", Angle.fromDegrees(100));
+
+        String msg = "0123456789012345678901234567890123456789";
+        controller.addFileToDevice("DeviceA", "FileAlpha", msg);
+        controller.addFileToDevice("DeviceB", "FileBeta", msg);
+
+        assertDoesNotThrow(() -> controller.sendFile("FileAlpha", "DeviceA", "Satellite1"));
+        controller.simulate();
+        assertDoesNotThrow(() -> controller.sendFile("FileBeta", "DeviceB", "Satellite1"));
+
+        // 7 bytes a minute each while both are running
+        controller.simulate(3);
+        assertEquals(new FileInfoResponse("FileAlpha", msg.substring(0, 36), msg.length(), false),
+                     controller.getInfo("Satellite1").getFiles().get("FileAlpha"));
+        assertEquals(new FileInfoResponse("FileBeta", msg.substring(0, 21), msg.length(), false),
+                     controller.getInfo("Satellite1").getFiles().get("FileBeta"));
+
+        // FileAlpha finishes during the next minute, after which FileBeta gets the whole 15 bytes
+        controller.simulate();
+        assertEquals(new FileInfoResponse("FileAlpha", msg, msg.length(), true),
+                     controller.getInfo("Satellite1").getFiles().get("FileAlpha"));
+        assertEquals(new FileInfoResponse("FileBeta", msg.substring(0, 28), msg.length(), false),
+                     controller.getInfo("Satellite1").getFiles().get("FileBeta"));
+        controller.simulate();
+        assertEquals(new FileInfoResponse("FileBeta", msg, msg.length(), true),
+                     controller.getInfo("Satellite1").getFiles().get("FileBeta"));
+    }
+
+    @Test
+    public void testAdmissionNeedsAByteAMinute() {
+        // Standard satellites only move a byte a minute, so they can only ever have one transfer each way
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "StandardSatellite", RADIUS_OF_JUPITER + 5000,
+                                   Angle.fromDegrees(100));
+        controller.createDevice("DeviceA", "LaptopDevice", Angle.fromDegrees(100));
+        controller.createDevice("DeviceB", "LaptopDevice", Angle.fromDegrees(100));
+        controller.createDevice("DeviceC", "LaptopDevice", Angle.fromDegrees(100));
+        controller.addFileToDevice("DeviceA", "FileAlpha", "ab");
+        controller.addFileToDevice("DeviceA", "FileBeta", "cd");
+
+        assertDoesNotThrow(() -> controller.sendFile("FileAlpha", "DeviceA", "Satellite1"));
+        assertThrows(FileTransferException.VirtualFileNoBandwidthException.class,
+                     () -> controller.sendFile("FileBeta", "DeviceA", "Satellite1"));
+        controller.simulate(2);
+
+        // Sending and receiving have separate budgets
+        assertDoesNotThrow(() -> controller.sendFile("FileAlpha", "Satellite1", "DeviceB"));
+        assertDoesNotThrow(() -> controller.sendFile("FileBeta", "DeviceA", "Satellite1"));
+        assertThrows(FileTransferException.VirtualFileNoBandwidthException.class,
+                     () -> controller.sendFile("FileAlpha", "Satellite1", "DeviceC"));
+    }
+
+    @Test
+    public void testRelayTakesOneTransferEachWay() {
+        // Relays have no bandwidth, but still accept one transfer each way, which never moves
+        BlackoutController controller = new BlackoutController();
+        controller.createSatellite("Satellite1", "RelaySatellite", RADIUS_OF_JUPITER + 5000, Angle.fromDegrees(150));
+        controller.createDevice("DeviceA", "LaptopDevice", Angle.fromDegrees(150));
+        controller.addFileToDevice("DeviceA", "FileAlpha", "ab");
+        controller.addFileToDevice("DeviceA", "FileBeta", "cd");
+
+        assertDoesNotThrow(() -> controller.sendFile("FileAlpha", "DeviceA", "Satellite1"));
+        assertThrows(FileTransferException.VirtualFileNoBandwidthException.class,
+                     () -> controller.sendFile("FileBeta", "DeviceA", "Satellite1"));
+        controller.simulate(5);
+        assertEquals(new FileInfoResponse("FileAlpha", "", 2, false),
+                     controller.getInfo("Satellite1").getFiles().get("FileAlpha"));
+    }
+}